@@ -0,0 +1,151 @@
+package frc.robot;
+
+import edu.wpi.first.hal.AllianceStationID;
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.wpilibj.TimedRobot;
+import edu.wpi.first.wpilibj.simulation.DriverStationSim;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+import edu.wpi.first.wpilibj2.command.Command;
+import frc.robot.constants.Constants;
+import frc.robot.subsystems.CommandSwerveDrivetrain;
+import frc.robot.util.SD;
+
+/**
+ * Headless simulation of one auto, run in lockstep as fast as the CPU allows </p>
+ * The HAL sim clock is paused and advanced one robot period at a time. Each step runs exactly one robot loop, then
+ * advances the drivetrain's lockstep model, so nothing depends on wall-clock time and the same auto string gives the same
+ * result every run. Select with {@code Main --headless <auto string> [red]}, which prints the result as one line of JSON
+ */
+public final class HeadlessSim
+{
+  /** Time disabled before enabling, for the pose reset and auto preparation, seconds */
+  static final double disabledTime = 0.1;
+  /** Time each step advances the robot by, seconds */
+  static final double period = TimedRobot.kDefaultPeriod;
+
+  /**
+   * Result of simulating an auto
+   * @param autoString Auto string simulated
+   * @param finished True if the auto command finished within the auto period
+   * @param time Time from enabling to the command finishing, or the auto period if it didn't, seconds
+   * @param finalPose Robot pose at the end
+   */
+  public static record Result(String autoString, boolean finished, double time, Pose2d finalPose)
+  {
+    /** Returns the result as a JSON object */
+    public String toJson()
+    {
+      return String.format
+      (
+        "{\"auto\":\"%s\",\"finished\":%b,\"time\":%.3f,\"x\":%.4f,\"y\":%.4f,\"heading\":%.2f}",
+        autoString.replace("\\", "\\\\").replace("\"", "\\\""),
+        finished,
+        time,
+        finalPose.getX(),
+        finalPose.getY(),
+        finalPose.getRotation().getDegrees()
+      );
+    }
+  }
+
+  private HeadlessSim() {}
+
+  /**
+   * Simulates one auto; the robot can only be created once, so call at most once per JVM
+   * @param autoString Auto string to run
+   * @param red True to run on the red alliance
+   * @return The result
+   */
+  public static Result run(String autoString, boolean red)
+  {
+    final Robot robot = start(red, true);
+    SD.AUTO_STRING.put(autoString);
+    step(robot, disabledTime);
+    setEnabled(true);
+
+    double time = 0;
+    boolean finished = false;
+    while (time < Constants.Auto.duration)
+    {
+      step(robot);
+      time += period;
+
+      // Scheduled by the first enabled loop, so it only stops being scheduled by finishing or failing to build
+      final Command autoCommand = robot.getAutoCommand();
+      if (autoCommand == null) {break;}
+      if (!autoCommand.isScheduled())
+      {
+        finished = true;
+        break;
+      }
+    }
+
+    final Pose2d finalPose = robot.getSwerveState().Pose;
+    robot.endCompetition();
+    return new Result(autoString, finished, finished ? time : Constants.Auto.duration, finalPose);
+  }
+
+  /**
+   * Starts a robot in lockstep, disabled on the given alliance; it only runs when stepped. Call at most once per JVM
+   * @param red True to start on the red alliance
+   * @param autonomous True to start in autonomous, otherwise teleop
+   * @return The running robot
+   */
+  static Robot start(boolean red, boolean autonomous)
+  {
+    if (!HAL.initialize(500, 0)) {throw new IllegalStateException("Failed to initialize the HAL");}
+    // Local NetworkTables, so any number of sims can run at once without contending for the server ports
+    NetworkTableInstance.getDefault().startLocal();
+    SimHooks.pauseTiming();
+    CommandSwerveDrivetrain.enableLockstepSim();
+
+    DriverStationSim.setDsAttached(true);
+    DriverStationSim.setAllianceStationId(red ? AllianceStationID.Red1 : AllianceStationID.Blue1);
+    DriverStationSim.setAutonomous(autonomous);
+    DriverStationSim.setEnabled(false);
+    DriverStationSim.notifyNewData();
+
+    final Robot robot = new Robot();
+    Thread robotThread = new Thread(robot::startCompetition, "Robot");
+    robotThread.setDaemon(true);
+    robotThread.start();
+    SimHooks.waitForProgramStart();
+    return robot;
+  }
+
+  /** Enables or disables the robot from the next loop */
+  static void setEnabled(boolean enabled)
+  {
+    DriverStationSim.setEnabled(enabled);
+    DriverStationSim.notifyNewData();
+  }
+
+  /** Runs one robot loop, then advances the drivetrain to the end of it */
+  static void step(Robot robot)
+  {
+    // Returns once the robot loop woken by the step has finished
+    SimHooks.stepTiming(period);
+    robot.stepLockstepSim(period);
+  }
+
+  /** Runs robot loops for the given time, rounded up to whole loops, seconds */
+  static void step(Robot robot, double time)
+  {
+    for (double t = 0; t < time; t += period) {step(robot);}
+  }
+
+  public static void main(String... args)
+  {
+    if (args.length < 1 || args.length > 2)
+    {
+      System.err.println("Usage: Main --headless <auto string> [red]");
+      System.exit(1);
+    }
+
+    System.out.println(run(args[0], args.length > 1 && args[1].equalsIgnoreCase("red")).toJson());
+    // CTRE and WPILib threads would otherwise keep the JVM alive
+    System.exit(0);
+  }
+}
@@ -4,12 +4,19 @@
 
 package frc.robot;
 
+import java.util.Arrays;
+
 import edu.wpi.first.wpilibj.RobotBase;
 
 public final class Main {
   private Main() {}
 
   public static void main(String... args) {
+    if (args.length > 0 && args[0].equals("--headless")) {
+      HeadlessSim.main(Arrays.copyOfRange(args, 1, args.length));
+      return;
+    }
+
     RobotBase.startRobot(Robot::new);
   }
 }
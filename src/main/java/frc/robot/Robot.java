@@ -6,7 +6,8 @@ package frc.robot;
 
 import edu.wpi.first.epilogue.Epilogue;
 import edu.wpi.first.epilogue.Logged;
-import edu.wpi.first.math.Pair;
+import edu.wpi.first.epilogue.Logged.Importance;
+import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Translation2d;
 import edu.wpi.first.wpilibj.DataLogManager;
@@ -15,6 +16,7 @@ import edu.wpi.first.wpilibj.GenericHID.RumbleType;
 import edu.wpi.first.wpilibj.XboxController.Axis;
 import edu.wpi.first.wpilibj.TimedRobot;
 import edu.wpi.first.wpilibj.smartdashboard.Field2d;
+import edu.wpi.first.wpilibj.event.EventLoop;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.Commands;
@@ -33,8 +35,13 @@ import static frc.robot.constants.FieldConstants.GeoFencing.*;
 import frc.robot.subsystems.*;
 import frc.robot.subsystems.vision.*;
 import frc.robot.subsystems.vision.Vision.TagPOI;
-import frc.robot.util.AutoFactories;
+import frc.robot.util.AllianceService;
+import frc.robot.util.AutoCache;
+import frc.robot.util.BudgetedLogger;
+import frc.robot.util.DriveStateMachine;
+import frc.robot.util.FieldQueries;
 import frc.robot.util.FieldUtils;
+import frc.robot.util.LoopProfiler;
 import frc.robot.util.SD;
 import frc.robot.util.controlTransmutation.*;
 import frc.robot.util.libs.Telemetry;
@@ -47,14 +54,25 @@ public class Robot extends TimedRobot
   public enum DriveState {Reef, Station, Barge, None}
   
   /* State */
+  @Logged(importance = Importance.INFO)
   private SwerveDriveState swerveState;
-  private TargetPosition currentTarget = TargetPosition.None;
-  private DriveState currentDriveState = DriveState.None;
+  /* Drive state and target, created once logging has started as it logs its transitions */
+  private final DriveStateMachine driveStates;
   private Command autoCommand;
 
   /* Telemetry and SD */
   private Field2d field = new Field2d();
-  private final Telemetry ctreLogger = new Telemetry(Constants.Swerve.maxSpeed);
+  private final LoopProfiler.Section schedulerProfile = LoopProfiler.section("CommandScheduler");
+  private final LoopProfiler.Section triggerProfile = LoopProfiler.section("Triggers");
+  private final LoopProfiler.Section loggingProfile = LoopProfiler.section("Logging");
+  private final BudgetedLogger epilogueLogger = new BudgetedLogger(() -> Epilogue.update(this));
+  private final Telemetry ctreLogger = new Telemetry
+  (
+    Constants.Swerve.maxSpeed, 
+    Constants.Swerve.telemetryDashboardPeriod, 
+    Constants.Swerve.telemetryBufferSize, 
+    Constants.Swerve.telemetryWriterPeriod
+  );
   
   /* Subsystems */
   private final static CommandSwerveDrivetrain s_Swerve = TunerConstants.createDrivetrain();
@@ -66,9 +84,10 @@ public class Robot extends TimedRobot
         s_Swerve.setVisionMeasurementStdDevs(stdDevs); 
         s_Swerve.addVisionMeasurement(poseEst, timestmp);
       },
-      () -> Pair.of(s_Swerve.getPigeon2().getYaw().getValueAsDouble(), swerveState.Speeds.omegaRadiansPerSecond), 
-      new Limelight(foreLimelightName), 
-      new Limelight(aftLimelightName)
+      // No cameras in a headless sim, as their frames would arrive on wall-clock time
+      CommandSwerveDrivetrain.isLockstepSim() ? 
+        new Limelight[0] : 
+        new Limelight[] {new Limelight(foreLimelightName), new Limelight(aftLimelightName)}
     );
 
   /* Controllers */
@@ -87,14 +106,26 @@ public class Robot extends TimedRobot
   private final InputCurve driverInputCurve = new InputCurve(2);
   private final Deadband driverDeadband = new Deadband();
 
+  /* Auto commands, built while disabled */
+  private final AutoCache autoCache = new AutoCache(s_Coral, s_Swerve, () -> swerveState);
+
   public Robot() 
   {
     updateSwerveState();
 
     initLogging();
+    driveStates = new DriveStateMachine(s_Vision::setActivePOI);
+    initOdometryListeners();
     initInputTransmute();
+
+    // Time trigger polling by wrapping every binding on the button loop between two markers
+    EventLoop buttonLoop = CommandScheduler.getInstance().getDefaultButtonLoop();
+    buttonLoop.bind(triggerProfile::start);
     bindControls();
     bindRumbles();
+    buttonLoop.bind(triggerProfile::stop);
+    buttonLoop.bind(LoopProfiler::markCommandsStart);
+    CommandScheduler.getInstance().onCommandExecute(LoopProfiler::markCommandExecuted);
   }
 
   /* INIT METHODS */
@@ -106,26 +137,37 @@ public class Robot extends TimedRobot
     DataLogManager.start("/home/lvuser/logs");
     DriverStation.startDataLog(DataLogManager.getLog());
 
-    Epilogue.bind(this);
-
     SmartDashboard.putData("Field", field);
 
     s_Swerve.registerTelemetry(ctreLogger::telemeterize);
   }
 
+  private void initOdometryListeners()
+  {
+    s_Swerve.addOdometryListener
+    (state -> 
+      s_Vision.setRobotOrientation(state.RawHeading.getDegrees(), Math.toDegrees(state.Speeds.omegaRadiansPerSecond))
+    );
+    s_Swerve.addOdometryListener(state -> s_Vision.drainMeasurements());
+  }
+
   private void initInputTransmute()
   {
-    boolean redAlliance = FieldUtils.isRedAlliance();
-    
     driverStick
-      .rotated(redAlliance)
       .withFieldObjects(GeoFencing.fieldGeoFence)
       .withBrake(driverBrake)
       .withInputCurve(driverInputCurve)
       .withDeadband(driverDeadband);
 
-    FieldUtils.activateAllianceFencing(redAlliance);
-    FieldConstants.GeoFencing.configureAttractors((testTarget, testState) -> currentTarget == testTarget && currentDriveState == testState);
+    FieldUtils.activateAllianceFencing(false);
+    AllianceService.addListener
+    (redAlliance -> 
+      {
+        driverStick.rotated(redAlliance);
+        FieldUtils.activateAllianceFencing(redAlliance);
+      }
+    );
+    FieldConstants.GeoFencing.configureAttractors(driveStates::isActive);
     FieldObject.setRobotRadiusSup
       (() -> 
         Math.hypot(swerveState.Speeds.vxMetersPerSecond, swerveState.Speeds.vyMetersPerSecond) >= robotSpeedThreshold ? 
@@ -133,7 +175,13 @@ public class Robot extends TimedRobot
         robotRadiusInscribed
       );
     FieldObject.setRobotPosSup(this::getTranslation);
-    GeoFencing.fieldGeoFence.setActiveCondition(SD.FENCE_TOGGLE::get);
+    GeoFencing.fieldGeoFence.setActiveCondition(SD.FENCE_TOGGLE);
+
+    if (Constants.Control.logTransmutation)
+    {
+      driverStick.withLogging("Transmutation/Driver");
+      GeoFencing.fieldGeoFence.withLogging("Transmutation/FieldObjects");
+    }
   }
 
   private void bindControls()
@@ -152,27 +200,28 @@ public class Robot extends TimedRobot
     s_Coral.setDefaultCommand(s_Coral.setSpeedCommand(0));
 
     /* Setting Drive States */
-    driver.povLeft().onTrue(Commands.runOnce(() -> currentTarget = TargetPosition.Left));
-    driver.povRight().onTrue(Commands.runOnce(() -> currentTarget = TargetPosition.Right));
-    driver.povUp().onTrue(Commands.runOnce(() -> currentTarget = TargetPosition.Centre));
-    driver.povDown().onTrue(Commands.runOnce(() -> currentTarget = TargetPosition.None));
+    driver.povLeft().onTrue(Commands.runOnce(() -> driveStates.setTarget(TargetPosition.Left)));
+    driver.povRight().onTrue(Commands.runOnce(() -> driveStates.setTarget(TargetPosition.Right)));
+    driver.povUp().onTrue(Commands.runOnce(() -> driveStates.setTarget(TargetPosition.Centre)));
+    driver.povDown().onTrue(Commands.runOnce(() -> driveStates.setTarget(TargetPosition.None)));
     
-    driver.x().onTrue(Commands.runOnce(() -> currentDriveState = DriveState.Reef));
-    driver.a().onTrue(Commands.runOnce(() -> currentDriveState = DriveState.Station));
-    driver.y().onTrue(Commands.runOnce(() -> currentDriveState = DriveState.Barge));
-    driver.b().onTrue(Commands.runOnce(() -> currentDriveState = DriveState.None));
-    driver.axisMagnitudeGreaterThan(Axis.kRightX.value, 0.2).onTrue(Commands.runOnce(() -> currentDriveState = DriveState.None));
+    driver.x().onTrue(Commands.runOnce(() -> driveStates.setDriveState(DriveState.Reef)));
+    driver.a().onTrue(Commands.runOnce(() -> driveStates.setDriveState(DriveState.Station)));
+    driver.y().onTrue(Commands.runOnce(() -> driveStates.setDriveState(DriveState.Barge)));
+    driver.b().onTrue(Commands.runOnce(() -> driveStates.setDriveState(DriveState.None)));
+    driver.axisMagnitudeGreaterThan(Axis.kRightX.value, 0.2).onTrue(Commands.runOnce(() -> driveStates.setDriveState(DriveState.None)));
     
     /* Coral Roller */
     driver.leftTrigger().whileTrue(s_Coral.setSpeedCommand(Constants.Coral.forwardSpeed));
     driver.leftBumper().whileTrue(s_Coral.setSpeedCommand(Constants.Coral.reverseSpeed));
-    new Trigger(() -> FieldUtils.atReefLineUp(swerveState.Pose)).whileTrue(s_Coral.setSpeedCommand(Constants.Coral.forwardSpeed));
+    new Trigger(FieldQueries::atReefLineup).whileTrue(s_Coral.setSpeedCommand(Constants.Coral.forwardSpeed));
 
-    /* Heading Locking */
-    new Trigger(() -> currentDriveState == DriveState.None)
-      .onTrue(Commands.runOnce(() -> s_Vision.setActivePOI(TagPOI.REEF)))
-      .whileTrue
+    /* Heading Locking, entered on drive state transitions */
+    driveStates
+      .withState
       (
+        DriveState.None, 
+        TagPOI.REEF, 
         new ManualDrive
         (
           s_Swerve, 
@@ -180,42 +229,42 @@ public class Robot extends TimedRobot
           () -> -driver.getRightX(),
           driver::getRightTriggerAxis
         )
-      );
-    new Trigger(() -> currentDriveState == DriveState.Reef)
-      .onTrue(Commands.runOnce(() -> s_Vision.setActivePOI(TagPOI.REEF)))
-      .whileTrue
+      )
+      .withState
       (
+        DriveState.Reef, 
+        TagPOI.REEF, 
         new TargetScoreDrive
         (
           s_Swerve, 
           driverStick::stickOutput,
           Rotation2d.kZero,
-          swerveState.Pose::getTranslation
+          FieldQueries::getTranslation
         )
-      );
-    new Trigger(() -> currentDriveState == DriveState.Station)
-    .onTrue(Commands.runOnce(() -> s_Vision.setActivePOI(TagPOI.CORALSTATION)))
-      .whileTrue
+      )
+      .withState
       (
+        DriveState.Station, 
+        TagPOI.CORALSTATION, 
         new TargetStationDrive
         (
           s_Swerve, 
           driverStick::stickOutput,
           Rotation2d.kZero,
-          swerveState.Pose::getTranslation
+          FieldQueries::getTranslation
         )
-      );
-    new Trigger(() -> currentDriveState == DriveState.Barge)
-      .onTrue(Commands.runOnce(() -> s_Vision.setActivePOI(TagPOI.BARGE)))
-      .whileTrue
+      )
+      .withState
       (
+        DriveState.Barge, 
+        TagPOI.BARGE, 
         new HeadingLockedDrive
         (
           s_Swerve, 
           driverStick::stickOutput,
           Rotation2d.kZero,
           Rotation2d.kZero,
-          swerveState.Pose::getTranslation
+          FieldQueries::getTranslation
         )
       );
     
@@ -228,7 +277,7 @@ public class Robot extends TimedRobot
   private void bindRumbles()
   {
     io_operatorLeft.addRumbleTrigger("CoralHeld", new Trigger(s_Coral::getSensor));
-    io_operatorRight.addRumbleTrigger("ScoreReady" , new Trigger(() -> FieldUtils.atReefLineUp(swerveState.Pose)));
+    io_operatorRight.addRumbleTrigger("ScoreReady" , new Trigger(FieldQueries::atReefLineup));
   }
 
   /* UTIL METHODS */
@@ -237,20 +286,46 @@ public class Robot extends TimedRobot
 
   private void updateSwerveState()
   {
-    swerveState = s_Swerve.getState();
+    swerveState = s_Swerve.getDriveState();
     field.setRobotPose(swerveState.Pose);
+    FieldQueries.update(swerveState.Pose);
   }
 
   /** Returns the t2d of the robot centre in field coordinates */
   public Translation2d getTranslation() {return swerveState.Pose.getTranslation();}
+
+  /** Returns the auto command scheduled by the last autonomousInit, for HeadlessSim */
+  Command getAutoCommand() {return autoCommand;}
+
+  /** Returns the drivetrain state read at the start of the last loop, for HeadlessSim */
+  SwerveDriveState getSwerveState() {return swerveState;}
+
+  /** Advances the drivetrain's lockstep model, for HeadlessSim */
+  void stepLockstepSim(double dt) {s_Swerve.stepLockstepSim(dt);}
+
+  /** Moves the robot to a new pose, for ScenarioRunner */
+  void resetPose(Pose2d pose) {s_Swerve.resetPose(pose);}
   
   /* OPMODE METHODS */
   /* ============ */
   @Override
   public void robotPeriodic() 
   {
+    LoopProfiler.setEnabled(SD.PROFILER_TOGGLE.getAsBoolean());
+    LoopProfiler.startLoop();
+
+    if (DriverStation.isDisabled() || !AllianceService.isKnown()) {AllianceService.update();}
     updateSwerveState();
+
+    schedulerProfile.start();
     CommandScheduler.getInstance().run();
+    schedulerProfile.stop();
+
+    loggingProfile.start();
+    epilogueLogger.update();
+    loggingProfile.stop();
+
+    LoopProfiler.endLoop();
   }
 
   @Override
@@ -258,14 +333,21 @@ public class Robot extends TimedRobot
   {
     if (getTranslation().equals(Translation2d.kZero))
     {
-      s_Swerve.resetPose(FieldUtils.isRedAlliance() ? FieldConstants.redStartLine : FieldConstants.blueStartLine);
+      s_Swerve.resetPose(FieldConstants.allianceStartLines[AllianceService.index()]);
     }
   }
 
+  @Override
+  public void disabledPeriodic()
+  {
+    if (SD.AUTO_OPTIMISE.button()) {autoCache.optimise(swerveState.Pose);}
+    autoCache.prepare();
+  }
+
   @Override
   public void autonomousInit() 
   {
-    autoCommand = AutoFactories.getCommandList(SD.AUTO_STRING.get(), s_Coral, s_Swerve, () -> swerveState);
+    autoCommand = autoCache.get(SD.AUTO_STRING.get());
 
     if (autoCommand != null) autoCommand.schedule();
   }
@@ -278,4 +360,13 @@ public class Robot extends TimedRobot
 
   @Override
   public void testInit() {CommandScheduler.getInstance().cancelAll();}
+
+  @Override
+  public void simulationInit()
+  {
+    if (CommandSwerveDrivetrain.isLockstepSim()) {return;}
+
+    new LimelightSim(foreLimelightName, Constants.Vision.foreCameraMount, s_Swerve::getSimGroundTruth).start();
+    new LimelightSim(aftLimelightName, Constants.Vision.aftCameraMount, s_Swerve::getSimGroundTruth).start();
+  }
 }
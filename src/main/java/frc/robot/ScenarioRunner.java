@@ -0,0 +1,345 @@
+package frc.robot;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.wpilibj.XboxController;
+import edu.wpi.first.wpilibj.simulation.DriverStationSim;
+import edu.wpi.first.wpilibj.simulation.XboxControllerSim;
+import frc.robot.constants.Constants;
+import frc.robot.constants.FieldConstants;
+import frc.robot.constants.FieldConstants.GeoFencing;
+import frc.robot.util.FieldUtils;
+import frc.robot.util.NavigationPlanner;
+import frc.robot.util.logAnalysis.Distribution;
+
+/**
+ * Runs scripted driver scenarios through the full robot in {@link HeadlessSim}, in parallel, and summarises them as JSON </p>
+ * Usage: {@code ./gradlew runScenarios -Pscenarios="<scenario file | directory> ... <summary.json>"}. Each scenario runs in its own
+ * JVM, as the robot can only be created once per JVM, with as many at once as there are cores. Exits with 1 if any scenario
+ * failed to reach its lineup, so it can gate a change. </p>
+ * A scenario is a JSON file:
+ * <pre>
+ * {
+ *   "name": "Reef GH from the start line",
+ *   "alliance": "blue",
+ *   "start": {"x": 7.27, "y": 4.03, "heading": 180},
+ *   "lineups": ["rg", "rh"],
+ *   "timeout": 6,
+ *   "inputs":
+ *   [
+ *     {"time": 0, "buttons": ["x"], "pov": 270},
+ *     {"time": 0.1, "leftY": 0.7}
+ *   ]
+ * }
+ * </pre>
+ * The start pose is in blue coordinates, heading in degrees, and is rotated onto the red half for red scenarios; as the sticks
+ * are operator-relative, the same inputs work for either alliance. Each input is the driver controller's whole state from its
+ * time until the next: axes default to 0, buttons (a, b, x, y, leftBumper, rightBumper, back, start, leftStick, rightStick)
+ * to released, and the POV to -1. The robot is enabled in teleop at time 0, and the scenario ends when the robot is within
+ * the lineup tolerances of any of its lineups, or at the timeout. </p>
+ * Each scenario reports the time to reach the lineup, how deep and for how long the robot's bumpers went into the field
+ * fences, and the wall-clock time of each robot loop. Loop times depend on the machine, everything else is deterministic.
+ */
+public final class ScenarioRunner
+{
+  private static final ObjectMapper mapper = new ObjectMapper();
+  /** Marks the worker's result among the robot's own output */
+  private static final String resultPrefix = "Scenario result: ";
+
+  private ScenarioRunner() {}
+
+  public static void main(String... args) throws Exception
+  {
+    if (args.length == 2 && args[0].equals("--worker"))
+    {
+      // CTRE and WPILib threads would otherwise keep the JVM alive, so always exit explicitly
+      try
+      {
+        System.out.println(resultPrefix + mapper.writeValueAsString(runScenario(Path.of(args[1]))));
+        System.exit(0);
+      }
+      catch (Exception e)
+      {
+        e.printStackTrace();
+        System.out.println(e);
+        System.exit(1);
+      }
+    }
+
+    if (args.length < 2)
+    {
+      System.err.println("Usage: ScenarioRunner <scenario.json | directory> ... <summary.json>");
+      System.exit(1);
+    }
+
+    List<Path> files = new ArrayList<Path>();
+    for (int i = 0; i < args.length - 1; i++) {files.addAll(findScenarios(Path.of(args[i])));}
+    files.sort(Comparator.naturalOrder());
+
+    ExecutorService workers = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+    List<Future<ObjectNode>> futures = new ArrayList<Future<ObjectNode>>();
+    for (Path file : files) {futures.add(workers.submit(() -> runWorker(file)));}
+
+    ArrayNode results = mapper.createArrayNode();
+    for (Future<ObjectNode> future : futures)
+    {
+      ObjectNode result = future.get();
+      results.add(result);
+      System.out.println(describe(result));
+    }
+    workers.shutdown();
+
+    ObjectNode summary = mapper.createObjectNode();
+    summary.set("totals", totals(results));
+    summary.set("scenarios", results);
+    mapper.writerWithDefaultPrettyPrinter().writeValue(new File(args[args.length - 1]), summary);
+
+    System.exit(summary.get("totals").get("reached").asInt() == files.size() ? 0 : 1);
+  }
+
+  private static List<Path> findScenarios(Path path) throws IOException
+  {
+    if (!Files.isDirectory(path)) {return List.of(path);}
+
+    try (Stream<Path> walk = Files.walk(path))
+      {return walk.filter(file -> file.toString().endsWith(".json")).toList();}
+  }
+
+  /** Runs a scenario in a new JVM with this one's classpath and native libraries, and returns its result */
+  private static ObjectNode runWorker(Path file)
+  {
+    ObjectNode failure = mapper.createObjectNode();
+    failure.put("file", file.toString());
+    failure.put("reached", false);
+
+    try
+    {
+      // Output goes to a file rather than a pipe, so a worker can't block on a full pipe and can be timed out
+      File output = File.createTempFile("scenario", ".log");
+      output.deleteOnExit();
+
+      Process worker = new ProcessBuilder
+      (
+        Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+        "-Djava.library.path=" + System.getProperty("java.library.path"),
+        "-cp",
+        System.getProperty("java.class.path"),
+        ScenarioRunner.class.getName(),
+        "--worker",
+        file.toString()
+      )
+        .redirectErrorStream(true)
+        .redirectOutput(output)
+        .start();
+
+      if (!worker.waitFor((long)(Constants.Sim.workerTimeout * 1000), TimeUnit.MILLISECONDS))
+      {
+        worker.destroyForcibly();
+        failure.put("error", "Timed out");
+        return failure;
+      }
+
+      List<String> lines = Files.readAllLines(output.toPath());
+      output.delete();
+      for (int i = lines.size() - 1; i >= 0; i--)
+      {
+        if (lines.get(i).startsWith(resultPrefix))
+        {
+          ObjectNode result = (ObjectNode)mapper.readTree(lines.get(i).substring(resultPrefix.length()));
+          result.put("file", file.toString());
+          return result;
+        }
+      }
+
+      failure.put("error", "Exited with " + worker.exitValue() + (lines.isEmpty() ? "" : ": " + lines.get(lines.size() - 1)));
+      return failure;
+    }
+    catch (IOException | InterruptedException e)
+    {
+      failure.put("error", e.toString());
+      return failure;
+    }
+  }
+
+  /** Runs a scenario in this JVM; the robot can only be created once, so call at most once per JVM */
+  private static ObjectNode runScenario(Path file) throws IOException
+  {
+    final JsonNode scenario = mapper.readTree(file.toFile());
+    final boolean red = scenario.path("alliance").asText("blue").equalsIgnoreCase("red");
+    final double timeout = scenario.path("timeout").asDouble(Constants.Sim.scenarioTimeout);
+    final JsonNode inputs = scenario.path("inputs");
+
+    final JsonNode startNode = scenario.path("start");
+    final Pose2d blueStart = new Pose2d
+    (
+      startNode.path("x").asDouble(),
+      startNode.path("y").asDouble(),
+      Rotation2d.fromDegrees(startNode.path("heading").asDouble())
+    );
+
+    List<String> lineupNames = new ArrayList<String>();
+    for (JsonNode name : scenario.path("lineups")) {lineupNames.add(name.asText());}
+    if (lineupNames.isEmpty()) {throw new IllegalArgumentException("No lineups");}
+    for (String name : lineupNames) {if (!FieldConstants.hasLineup(name)) {throw new IllegalArgumentException("Unknown lineup " + name);}}
+
+    final Robot robot = HeadlessSim.start(red, false);
+    final XboxControllerSim driver = new XboxControllerSim(0);
+    // Disabled loops update the alliance, which the lineups below are read for
+    HeadlessSim.step(robot, HeadlessSim.disabledTime);
+    robot.resetPose(red ? blueStart.rotateAround(FieldConstants.fieldCentre, Rotation2d.k180deg) : blueStart);
+
+    final List<Pose2d> lineups = lineupNames.stream().map(FieldConstants::getAllianceLineup).toList();
+
+    // Keep-out regions at the bumpers, so any penetration means the bumpers are inside a fence
+    final NavigationPlanner fences = new NavigationPlanner
+    (
+      red ? GeoFencing.fieldRedGeoFence : GeoFencing.fieldBlueGeoFence,
+      GeoFencing.robotRadiusInscribed
+    );
+
+    final Distribution loopTimes = new Distribution();
+    double maxPenetration = 0;
+    double penetrationTime = 0;
+    double time = 0;
+    boolean reached = false;
+    int nextInput = 0;
+
+    HeadlessSim.setEnabled(true);
+    while (time < timeout)
+    {
+      while (nextInput < inputs.size() && inputs.get(nextInput).path("time").asDouble() <= time)
+      {
+        applyInput(driver, inputs.get(nextInput));
+        nextInput++;
+      }
+
+      final long loopStart = System.nanoTime();
+      HeadlessSim.step(robot);
+      loopTimes.add((System.nanoTime() - loopStart) / 1e9);
+      time += HeadlessSim.period;
+
+      final Pose2d pose = robot.getSwerveState().Pose;
+      final double penetration = fences.getPenetration(pose.getTranslation());
+      maxPenetration = Math.max(maxPenetration, penetration);
+      if (penetration > 0) {penetrationTime += HeadlessSim.period;}
+
+      if (lineups.stream().anyMatch(lineup -> FieldUtils.atPose(pose, lineup)))
+      {
+        reached = true;
+        break;
+      }
+    }
+
+    final Pose2d finalPose = robot.getSwerveState().Pose;
+    robot.endCompetition();
+
+    ObjectNode result = mapper.createObjectNode();
+    result.put("name", scenario.path("name").asText(file.getFileName().toString()));
+    result.put("alliance", red ? "red" : "blue");
+    result.put("reached", reached);
+    if (reached) {result.put("timeToLineup", time);}
+    else {result.putNull("timeToLineup");}
+    result.put("maxPenetration", maxPenetration);
+    result.put("penetrationTime", penetrationTime);
+    result.put("loopTimeP50", loopTimes.percentile(0.5));
+    result.put("loopTimeP99", loopTimes.percentile(0.99));
+    result.put("loopTimeMax", loopTimes.max());
+    result.put("loopTimeMean", loopTimes.mean());
+    result.put("finalX", finalPose.getX());
+    result.put("finalY", finalPose.getY());
+    result.put("finalHeading", finalPose.getRotation().getDegrees());
+    return result;
+  }
+
+  /** Sets the driver controller to the input's state, defaulting anything it doesn't set */
+  private static void applyInput(XboxControllerSim driver, JsonNode input)
+  {
+    driver.setLeftX(input.path("leftX").asDouble(0));
+    driver.setLeftY(input.path("leftY").asDouble(0));
+    driver.setRightX(input.path("rightX").asDouble(0));
+    driver.setRightY(input.path("rightY").asDouble(0));
+    driver.setLeftTriggerAxis(input.path("leftTrigger").asDouble(0));
+    driver.setRightTriggerAxis(input.path("rightTrigger").asDouble(0));
+    driver.setPOV(input.path("pov").asInt(-1));
+
+    for (XboxController.Button button : XboxController.Button.values())
+    {
+      // Enum names are kA, kLeftBumper, etc.
+      boolean pressed = false;
+      for (JsonNode name : input.path("buttons")) {pressed |= name.asText().equalsIgnoreCase(button.name().substring(1));}
+      driver.setRawButton(button.value, pressed);
+    }
+
+    DriverStationSim.notifyNewData();
+  }
+
+  private static ObjectNode totals(ArrayNode results)
+  {
+    final Distribution timeToLineup = new Distribution();
+    int reached = 0;
+    double maxPenetration = 0;
+    double loopTimeP99 = 0;
+
+    for (JsonNode result : results)
+    {
+      if (result.path("reached").asBoolean())
+      {
+        reached++;
+        timeToLineup.add(result.get("timeToLineup").asDouble());
+      }
+      maxPenetration = Math.max(maxPenetration, result.path("maxPenetration").asDouble());
+      loopTimeP99 = Math.max(loopTimeP99, result.path("loopTimeP99").asDouble());
+    }
+
+    ObjectNode totals = mapper.createObjectNode();
+    totals.put("scenarios", results.size());
+    totals.put("reached", reached);
+    if (reached > 0)
+    {
+      totals.put("meanTimeToLineup", timeToLineup.mean());
+      totals.put("maxTimeToLineup", timeToLineup.max());
+    }
+    else
+    {
+      totals.putNull("meanTimeToLineup");
+      totals.putNull("maxTimeToLineup");
+    }
+    totals.put("maxPenetration", maxPenetration);
+    totals.put("worstLoopTimeP99", loopTimeP99);
+    return totals;
+  }
+
+  private static String describe(JsonNode result)
+  {
+    final String name = result.path("name").asText(result.path("file").asText());
+    if (result.has("error")) {return name + ": failed, " + result.get("error").asText();}
+    if (!result.path("reached").asBoolean()) {return name + ": didn't reach its lineup";}
+
+    return String.format
+    (
+      "%s: %.2f s to lineup, %.3f m max penetration, %.2f ms loop p99",
+      name,
+      result.get("timeToLineup").asDouble(),
+      result.get("maxPenetration").asDouble(),
+      result.get("loopTimeP99").asDouble() * 1e3
+    );
+  }
+}
@@ -2,85 +2,89 @@ package frc.robot.commands.swerve;
 
 import java.util.function.Supplier;
 
-import com.ctre.phoenix6.swerve.SwerveModule.SteerRequestType;
-import com.ctre.phoenix6.swerve.SwerveRequest;
+import com.ctre.phoenix6.swerve.SwerveDrivetrain.SwerveDriveState;
 
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.wpilibj.Timer;
 import frc.robot.constants.Constants.Swerve;
 import frc.robot.subsystems.CommandSwerveDrivetrain;
+import frc.robot.util.HeadingController;
 import frc.robot.util.SD;
 
-/* You should consider using the more terse Command factories API instead https://docs.wpilib.org/en/stable/docs/software/commandbased/organizing-command-based.html#defining-commands */
-public class HeadingLockedDrive extends SwerveCommandBase 
+/**
+ * Manual translation with the heading held by a {@link HeadingController} </p>
+ * Subclasses pick the heading each cycle by overriding {@link #getTargetHeading}, ideally from precomputed tables so the
+ * command doesn't allocate while running
+ */
+public class HeadingLockedDrive extends SwerveCommandBase
 {
   protected Rotation2d rotationOffset;
   protected Rotation2d targetHeading;
 
-  protected double rotationKP;
-  protected double rotationKI;
-  protected double rotationKD;
-
   protected Supplier<Translation2d> robotPosSup;
 
-  protected final SwerveRequest.FieldCentricFacingAngle driveRequest = new SwerveRequest
-    .FieldCentricFacingAngle()
-    .withDriveRequestType(com.ctre.phoenix6.swerve.SwerveModule.DriveRequestType.OpenLoopVoltage)
-    .withSteerRequestType(SteerRequestType.MotionMagicExpo);
+  protected final HeadingController headingController = new HeadingController
+  (
+    Swerve.headingKP,
+    Swerve.maxAngularVelocity,
+    Swerve.profiledMaxAngularAcceleration
+  );
+  private final Timer timer = new Timer();
+
+  /** Field direction the operator sees as forward, radians; set on initialize, as the alliance can't change while enabled */
+  protected double operatorForward;
 
-  /** Creates a new ManualDrive. */
+  /** Creates a new HeadingLockedDrive. */
   public HeadingLockedDrive
   (
-    CommandSwerveDrivetrain s_Swerve,  
+    CommandSwerveDrivetrain s_Swerve,
     Supplier<Translation2d> joystickSupplier,
-    Rotation2d targetHeading, 
+    Rotation2d targetHeading,
     Rotation2d rotationOffset,
     Supplier<Translation2d> robotPosSup
-  ) 
+  )
   {
     super(s_Swerve, joystickSupplier);
 
-    rotationKP = Swerve.rotationKP;
-    rotationKI = Swerve.rotationKI;
-    rotationKD = Swerve.rotationKD;
-
-    driveRequest.HeadingController.setPID(rotationKP, rotationKI, rotationKD);
-
     this.targetHeading = targetHeading;
     this.rotationOffset = rotationOffset;
     this.robotPosSup = robotPosSup;
   }
 
+  @Override
+  protected void initDriveConstraints()
+  {
+    operatorForward = s_Swerve.getOperatorForward().getRadians();
+    headingController.reset(s_Swerve.getDriveState().Speeds.omegaRadiansPerSecond);
+    timer.restart();
+  }
+
   @Override
   public void execute()
   {
     motionXY = joystickSupplier.get();
     robotXY = robotPosSup.get();
 
-    updateTargetHeading();
-    updateRotationPID();
-
     if (motionXY.getNorm() != 0)
       {SD.STATE_DRIVE.put("Heading Locked");}
 
-    s_Swerve.setControl
+    final SwerveDriveState state = s_Swerve.getDriveState();
+    final double rotationVal = headingController.calculate(state.Pose.getRotation().getRadians(), getTargetHeading(), timer.get());
+    timer.reset();
+
+    s_Swerve.driveOperatorRelative
     (
-      driveRequest
-      .withVelocityX(motionXY.getX() * Swerve.maxSpeed)
-      .withVelocityY(motionXY.getY() * Swerve.maxSpeed)
-      .withTargetDirection(targetHeading.plus(rotationOffset))
-      .withHeadingPID(rotationKP, rotationKI, rotationKD)
+      motionXY.getX() * Swerve.maxSpeed,
+      motionXY.getY() * Swerve.maxSpeed,
+      rotationVal
     );
   }
 
-  /** Processing to dynamicaly update the target heading */
-  protected void updateTargetHeading() {}
-
-  /** Processing to dynamicaly update the heading PID */
-  protected void updateRotationPID()
-  {
-    rotationKP = Swerve.rotationKP;
-    rotationKI = Swerve.rotationKI;
-    rotationKD = Swerve.rotationKD;
-  }
+  /**
+   * Returns the field heading to hold this cycle, radians; override to update it dynamically </p>
+   * By default the target heading plus offset, relative to the operator perspective as the joystick is
+   */
+  protected double getTargetHeading()
+    {return targetHeading.getRadians() + rotationOffset.getRadians() + operatorForward;}
 }
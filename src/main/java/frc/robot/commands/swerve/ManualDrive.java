@@ -7,9 +7,6 @@ package frc.robot.commands.swerve;
 import java.util.function.DoubleSupplier;
 import java.util.function.Supplier;
 
-import com.ctre.phoenix6.swerve.SwerveModule.*;
-import com.ctre.phoenix6.swerve.SwerveRequest;
-
 import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.geometry.Translation2d;
 import frc.robot.constants.Constants.Control;
@@ -24,11 +21,6 @@ public class ManualDrive extends SwerveCommandBase
   protected double rotationVal;
   protected DoubleSupplier brakeSup;
 
-  protected final SwerveRequest.FieldCentric driveRequest = new SwerveRequest
-    .FieldCentric() 
-    .withDriveRequestType(DriveRequestType.OpenLoopVoltage)
-    .withSteerRequestType(SteerRequestType.MotionMagicExpo);
-
   /** Creates a new ManualDrive. */
   public ManualDrive(CommandSwerveDrivetrain s_Swerve, Supplier<Translation2d> joystickSupplier, DoubleSupplier rotationSup, DoubleSupplier brakeSup) 
   {
@@ -53,12 +45,11 @@ public class ManualDrive extends SwerveCommandBase
     if (motionXY.getNorm() != 0)
       {SD.STATE_DRIVE.put("Manual");}
 
-    s_Swerve.setControl
+    s_Swerve.driveOperatorRelative
     (
-      driveRequest
-      .withVelocityX(motionXY.getX() * Swerve.maxSpeed)
-      .withVelocityY(motionXY.getY() * Swerve.maxSpeed)
-      .withRotationalRate(rotationVal * Swerve.maxAngularVelocity)
+      motionXY.getX() * Swerve.maxSpeed,
+      motionXY.getY() * Swerve.maxSpeed,
+      rotationVal * Swerve.maxAngularVelocity
     );
   }
 }
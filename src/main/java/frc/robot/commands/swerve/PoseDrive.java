@@ -0,0 +1,109 @@
+package frc.robot.commands.swerve;
+
+import java.util.function.Supplier;
+
+import com.ctre.phoenix6.swerve.SwerveDrivetrain.SwerveDriveState;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.controller.PIDController;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.wpilibj2.command.Command;
+import frc.robot.constants.Constants.Control;
+import frc.robot.subsystems.CommandSwerveDrivetrain;
+import frc.robot.util.controlTransmutation.ObjectList;
+import frc.robot.util.controlTransmutation.PIDDriveTransmuter;
+
+import static frc.robot.constants.Constants.Swerve.*;
+
+/**
+ * Drives to a field pose with PID control on each axis, finishing once within the lineup tolerance </p>
+ * The target is resolved once per cycle, and the speeds go to the drivetrain's reused request, so the command doesn't allocate
+ * while running unless a non-empty object list is given
+ */
+public class PoseDrive extends Command
+{
+  private final CommandSwerveDrivetrain s_Swerve;
+  private final Supplier<Pose2d> targetSupplier;
+  private final Supplier<SwerveDriveState> swerveStateSup;
+
+  private final PIDDriveTransmuter pidTransmuter = new PIDDriveTransmuter(driveKP, driveKI, driveKD);
+  private final PIDController thetaController = new PIDController(rotationKP, rotationKI, rotationKD);
+
+
+  /* Resolved once per cycle, shared by execute and isFinished */
+  private Pose2d pose;
+  private Pose2d target;
+
+  /**
+   * Creates a new PoseDrive
+   * @param s_Swerve Drivetrain to drive
+   * @param targetSupplier Supplier of the field pose to drive to, read once per cycle
+   * @param swerveStateSup Supplier of the current drivetrain state
+   */
+  public PoseDrive(CommandSwerveDrivetrain s_Swerve, Supplier<Pose2d> targetSupplier, Supplier<SwerveDriveState> swerveStateSup)
+  {
+    this.s_Swerve = s_Swerve;
+    this.targetSupplier = targetSupplier;
+    this.swerveStateSup = swerveStateSup;
+
+    thetaController.enableContinuousInput(-Math.PI, Math.PI);
+
+    addRequirements(s_Swerve);
+  }
+
+  /**
+   * Sets the field objects the translation output is processed through
+   * @param objectList Any list of objects
+   * @return The PoseDrive with the new list of objects
+   */
+  public PoseDrive withObjectList(ObjectList objectList)
+  {
+    pidTransmuter.withObjectList(objectList);
+    return this;
+  }
+
+  @Override
+  public void initialize()
+  {
+    pidTransmuter.reset();
+    thetaController.reset();
+  }
+
+  @Override
+  public void execute()
+  {
+    pose = swerveStateSup.get().Pose;
+    target = targetSupplier.get();
+
+    final double speedTheta = MathUtil.clamp
+    (
+      thetaController.calculate(pose.getRotation().getRadians(), target.getRotation().getRadians()),
+      -maxAngularVelocity,
+      maxAngularVelocity
+    );
+
+    pidTransmuter.calculate(pose.getX(), pose.getY(), target.getX(), target.getY());
+    final double fieldX = pidTransmuter.getThrottleX() * maxSpeed;
+    final double fieldY = pidTransmuter.getThrottleY() * maxSpeed;
+
+    s_Swerve.driveFieldRelative(fieldX, fieldY, speedTheta, pose.getRotation());
+  }
+
+  @Override
+  public boolean isFinished()
+  {
+    if (pose == null) {return false;}
+
+    return
+      Math.hypot(pose.getX() - target.getX(), pose.getY() - target.getY()) < Control.lineupTolerance &&
+      Math.abs(Math.toDegrees(MathUtil.angleModulus(pose.getRotation().getRadians() - target.getRotation().getRadians())))
+        < Control.angleLineupTolerance;
+  }
+
+  @Override
+  public void end(boolean interrupted)
+  {
+    pose = null;
+    target = null;
+  }
+}
@@ -0,0 +1,183 @@
+package frc.robot.commands.swerve;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+import com.ctre.phoenix6.swerve.SwerveDrivetrain.SwerveDriveState;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj2.command.Command;
+import frc.robot.constants.Constants.Control;
+import frc.robot.subsystems.CommandSwerveDrivetrain;
+import frc.robot.util.NavigationPlanner;
+import frc.robot.util.PoseProfile;
+
+import static frc.robot.constants.Constants.Swerve.*;
+
+/**
+ * Drives to a field pose following a {@link PoseProfile} </p>
+ * The profile is planned from the robot's current pose and velocity, unless a precomputed plan starting near the robot is given,
+ * and can be routed around the field's fences.
+ * Each cycle the profile velocity is fed forward, with proportional correction towards the profile setpoint.
+ * The plan is remade if the target changes.
+ */
+public class ProfiledPoseDrive extends Command
+{
+  private final CommandSwerveDrivetrain s_Swerve;
+  private final Supplier<Pose2d> targetSupplier;
+  private final Supplier<SwerveDriveState> swerveStateSup;
+
+  private final Timer timer = new Timer();
+
+  /** Plan made ahead of time, used if the robot starts near its start */
+  private PoseProfile precomputedProfile;
+  /** Plan made by this command from the robot's state */
+  private final PoseProfile liveProfile = new PoseProfile();
+  /** Whichever of the two is being followed, or null until the first cycle */
+  private PoseProfile profile;
+  /** Route live plans around the fences, rather than in a straight line */
+  private boolean navigate = false;
+
+  /* Resolved once per cycle, shared by execute and isFinished */
+  private Pose2d pose;
+  private Pose2d target;
+
+  /**
+   * Creates a new ProfiledPoseDrive
+   * @param s_Swerve Drivetrain to drive
+   * @param targetSupplier Supplier of the field pose to drive to, read once per cycle
+   * @param swerveStateSup Supplier of the current drivetrain state
+   */
+  public ProfiledPoseDrive(CommandSwerveDrivetrain s_Swerve, Supplier<Pose2d> targetSupplier, Supplier<SwerveDriveState> swerveStateSup)
+  {
+    this.s_Swerve = s_Swerve;
+    this.targetSupplier = targetSupplier;
+    this.swerveStateSup = swerveStateSup;
+
+    addRequirements(s_Swerve);
+  }
+
+  /**
+   * Sets a plan made ahead of time, followed instead of planning on the first cycle if the robot is near rest
+   * within the replan tolerance of its start, and its target is the current target
+   * @param precomputedProfile Planned PoseProfile, only sampled by this command
+   * @return The ProfiledPoseDrive with the new plan
+   */
+  public ProfiledPoseDrive withPlan(PoseProfile precomputedProfile)
+  {
+    this.precomputedProfile = precomputedProfile;
+    return this;
+  }
+
+  /**
+   * Routes plans made by this command around the current alliance's fences, with the {@link NavigationPlanner}
+   * @return The ProfiledPoseDrive, navigating
+   */
+  public ProfiledPoseDrive withNavigation()
+  {
+    navigate = true;
+    return this;
+  }
+
+  @Override
+  public void initialize()
+  {
+    profile = null;
+  }
+
+  @Override
+  public void execute()
+  {
+    final SwerveDriveState state = swerveStateSup.get();
+    pose = state.Pose;
+    target = targetSupplier.get();
+
+    if (profile == null || !target.equals(profile.getTarget())) {plan(state);}
+
+    profile.sample(timer.get());
+
+    double fieldX = profile.getVelocityX() + profiledDriveKP * (profile.getX() - pose.getX());
+    double fieldY = profile.getVelocityY() + profiledDriveKP * (profile.getY() - pose.getY());
+
+    final double speed = Math.hypot(fieldX, fieldY);
+    if (speed > maxSpeed)
+    {
+      fieldX *= maxSpeed / speed;
+      fieldY *= maxSpeed / speed;
+    }
+
+    final double speedTheta = MathUtil.clamp
+    (
+      profile.getAngularVelocity() +
+        profiledRotationKP * MathUtil.angleModulus(profile.getHeading() - pose.getRotation().getRadians()),
+      -maxAngularVelocity,
+      maxAngularVelocity
+    );
+
+    s_Swerve.driveFieldRelative(fieldX, fieldY, speedTheta, pose.getRotation());
+  }
+
+  /** Picks the precomputed plan if it still fits, otherwise plans from the current state, and restarts the profile timer */
+  private void plan(SwerveDriveState state)
+  {
+    final double vx = state.Speeds.vxMetersPerSecond;
+    final double vy = state.Speeds.vyMetersPerSecond;
+    final double omega = state.Speeds.omegaRadiansPerSecond;
+
+    if (profile == null && precomputedFits(vx, vy, omega)) {profile = precomputedProfile;}
+    else
+    {
+      // Robot relative speeds rotated to field relative
+      final double cos = pose.getRotation().getCos();
+      final double sin = pose.getRotation().getSin();
+
+      profile = liveProfile.plan
+      (
+        pose, 
+        vx * cos - vy * sin, 
+        vx * sin + vy * cos, 
+        omega, 
+        navigate ? NavigationPlanner.forAlliance().findPath(pose.getTranslation(), target.getTranslation()) : List.of(), 
+        target
+      );
+    }
+
+    timer.restart();
+  }
+
+  private boolean precomputedFits(double vx, double vy, double omega)
+  {
+    if (precomputedProfile == null || !target.equals(precomputedProfile.getTarget())) {return false;}
+
+    final Pose2d start = precomputedProfile.getStart();
+    return
+      Math.hypot(vx, vy) < profiledReplanSpeed &&
+      Math.abs(omega) < profiledReplanAngularSpeed &&
+      Math.hypot(pose.getX() - start.getX(), pose.getY() - start.getY()) < profiledReplanDistance &&
+      Math.abs(Math.toDegrees(MathUtil.angleModulus(pose.getRotation().getRadians() - start.getRotation().getRadians())))
+        < profiledReplanAngle;
+  }
+
+  @Override
+  public boolean isFinished()
+  {
+    if (pose == null) {return false;}
+
+    return
+      timer.get() >= profile.getTotalTime() &&
+      Math.hypot(pose.getX() - target.getX(), pose.getY() - target.getY()) < Control.lineupTolerance &&
+      Math.abs(Math.toDegrees(MathUtil.angleModulus(pose.getRotation().getRadians() - target.getRotation().getRadians())))
+        < Control.angleLineupTolerance;
+  }
+
+  @Override
+  public void end(boolean interrupted)
+  {
+    timer.stop();
+    pose = null;
+    target = null;
+    profile = null;
+  }
+}
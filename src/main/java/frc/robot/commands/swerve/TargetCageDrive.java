@@ -24,11 +24,13 @@ public class TargetCageDrive extends HeadingLockedDrive
   }
 
   @Override
-  protected void updateTargetHeading() 
+  protected double getTargetHeading() 
   {
     rotationOffset = 
     MathUtil.isNear(robotXY.getX(), (FieldConstants.fieldCentre.getX()), Constants.Control.cageFaceDistance) ? 
       Rotation2d.kZero :
       Rotation2d.kCW_90deg;
+
+    return super.getTargetHeading();
   }
 }
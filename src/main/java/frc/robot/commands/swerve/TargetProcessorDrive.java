@@ -23,8 +23,9 @@ public class TargetProcessorDrive extends HeadingLockedDrive
   }
 
   @Override
-  protected void updateTargetHeading()
+  protected double getTargetHeading()
   {
     targetHeading = FieldUtils.isRedAlliance() ? Rotation2d.kCCW_90deg : Rotation2d.kCW_90deg;
+    return super.getTargetHeading();
   }
 }
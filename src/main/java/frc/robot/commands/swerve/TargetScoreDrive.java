@@ -4,14 +4,18 @@ import java.util.function.Supplier;
 
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Translation2d;
-import edu.wpi.first.math.util.Units;
 import static frc.robot.constants.FieldConstants.GeoFencing.*;
+import frc.robot.constants.FieldConstants;
 import frc.robot.subsystems.CommandSwerveDrivetrain;
-import frc.robot.util.FieldUtils;
+import frc.robot.util.AllianceService;
+import frc.robot.util.FieldQueries;
 
 public class TargetScoreDrive extends HeadingLockedDrive 
 {
-  private Rotation2d rotationOffsetBase;
+  /** Heading for each reef sector with the offset applied, radians, indexed by alliance then sector */
+  private final double[][] sectorHeadings;
+  /** Sector last targeted, held while the robot is too close to the reef to pick one */
+  private int sector = 1;
 
   /** Creates a new TargetScoreDrive. */
   public TargetScoreDrive
@@ -23,52 +27,23 @@ public class TargetScoreDrive extends HeadingLockedDrive
   ) 
   {
     super(s_Swerve, joystickSupplier, Rotation2d.kZero, rotationOffset, robotPosSup);
-    this.rotationOffsetBase = rotationOffset;
+
+    // The offset turns one way at the face nearest the driver station, sector 1, and the other way at the rest
+    sectorHeadings = new double[FieldConstants.allianceReefHeadings.length][];
+    for (int alliance = 0; alliance < sectorHeadings.length; alliance++)
+    {
+      sectorHeadings[alliance] = FieldConstants.allianceReefHeadings[alliance].clone();
+      for (int i = 0; i < sectorHeadings[alliance].length; i++)
+        {sectorHeadings[alliance][i] += i == 1 ? rotationOffset.getRadians() : -rotationOffset.getRadians();}
+    }
   }
 
   @Override
-  protected void updateTargetHeading()
+  protected double getTargetHeading()
   { 
     if (reefBlue.getDistance() >= robotRadiusCircumscribed/2 && reefRed.getDistance() >= robotRadiusCircumscribed/2)
-    {
-      switch (FieldUtils.getNearestReefFace(robotXY)) 
-      {
-        case 1 ->
-        {
-          targetHeading = Rotation2d.kZero;
-          super.rotationOffset = this.rotationOffsetBase;
-        }
+      {sector = FieldQueries.getReefSector();}
 
-        case 2 ->
-        {
-          targetHeading = new Rotation2d(Units.degreesToRadians(60));
-          super.rotationOffset = this.rotationOffsetBase.unaryMinus();
-        }
-
-        case 3 ->
-        {
-          targetHeading = new Rotation2d(Units.degreesToRadians(120));
-          super.rotationOffset = this.rotationOffsetBase.unaryMinus();
-        }
-
-        case 4 ->
-        {
-          targetHeading = Rotation2d.k180deg;
-          super.rotationOffset = this.rotationOffsetBase.unaryMinus();
-        } 
-
-        case 5 ->
-        {
-          targetHeading = new Rotation2d(Units.degreesToRadians(-120));
-          super.rotationOffset = this.rotationOffsetBase.unaryMinus();
-        }  
-        
-        case 6 ->
-        {
-          targetHeading = new Rotation2d(Units.degreesToRadians(-60));
-          super.rotationOffset = this.rotationOffsetBase.unaryMinus();
-        }
-      }
-    }
+    return sectorHeadings[AllianceService.index()][sector];
   }
-}
\ No newline at end of file
+}
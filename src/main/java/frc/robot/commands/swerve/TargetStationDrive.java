@@ -4,8 +4,9 @@ import java.util.function.Supplier;
 
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Translation2d;
-import edu.wpi.first.math.util.Units;
+import frc.robot.constants.FieldConstants;
 import frc.robot.subsystems.CommandSwerveDrivetrain;
+import frc.robot.util.AllianceService;
 
 public class TargetStationDrive extends HeadingLockedDrive 
 {
@@ -22,10 +23,10 @@ public class TargetStationDrive extends HeadingLockedDrive
   }
 
   @Override
-  protected void updateTargetHeading()
+  protected double getTargetHeading()
   {
-    targetHeading = redAlliance ^ (robotXY.getY() >= 4.026) ? 
-      new Rotation2d(Units.degreesToRadians(-55)) : // Left side if blue, right side if red
-      new Rotation2d(Units.degreesToRadians(55)); // Right side if blue, left side if red
+    // Heading for the station on the robot's half of the field
+    final int station = robotXY.getY() >= FieldConstants.fieldCentre.getY() ? 1 : 0;
+    return FieldConstants.allianceStationHeadings[AllianceService.index()][station];
   }
-}
\ No newline at end of file
+}
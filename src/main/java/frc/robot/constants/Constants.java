@@ -2,6 +2,11 @@ package frc.robot.constants;
 
 import static edu.wpi.first.units.Units.*;
 
+import edu.wpi.first.math.geometry.Rotation3d;
+import edu.wpi.first.math.geometry.Transform3d;
+import edu.wpi.first.math.geometry.Translation3d;
+import edu.wpi.first.math.util.Units;
+
 public final class Constants 
 {
   public static final class RumblerConstants 
@@ -37,6 +42,8 @@ public final class Constants
     public static final double lineupTolerance = 0.05;
     /** Rotation lineup tolerance, in degrees */
     public static final double angleLineupTolerance = 1.5;
+    /** Log the output of every driver input transmutation stage and field object */
+    public static final boolean logTransmutation = false;
   }
 
   public static final class Swerve
@@ -60,11 +67,101 @@ public final class Constants
     public static final double rotationKIAlgae = 0;
     public static final double rotationKDAlgae = 1;
 
+    /** Heading controller gain near the target, radians per second per radian; further out the heading follows a profile */
+    public static final double headingKP = 12;
+
     /* Swerve Limit Values */
     /** Meters per Second */
     public static final double maxSpeed = TunerConstants.kSpeedAt12Volts.in(MetersPerSecond);
     /** Radians per Second */
     public static final double maxAngularVelocity = 4;
+
+    /* Setpoint Generator Values */
+    /** Wheel-force budget of each module: drive torque at the slip current over a quarter of the robot's mass, metres per second squared */
+    public static final double moduleMaxAcceleration = 9;
+    /** Acceleration of each module from the drive motor's stall torque at 12 volts, metres per second squared */
+    public static final double moduleStallAcceleration = 60;
+    /** Radians per second */
+    public static final double moduleMaxSteerRate = 15;
+    /** Drive calls further apart than this restart the setpoint generator from the measured state, seconds */
+    public static final double setpointResetTime = 0.1;
+
+    /* Profiled Pose Drive Values */
+    /** Cruise speed of profiled pose drives, metres per second */
+    public static final double profiledMaxSpeed = maxSpeed * 0.8;
+    /** Metres per second squared */
+    public static final double profiledMaxAcceleration = 3.5;
+    /** Radians per second squared */
+    public static final double profiledMaxAngularAcceleration = 10;
+    /** Metres per second of correction per metre behind the profile setpoint */
+    public static final double profiledDriveKP = 3;
+    /** Radians per second of correction per radian behind the profile setpoint */
+    public static final double profiledRotationKP = 4;
+    /* A precomputed profile is replanned if the robot starts further than this from its start, or faster than this */
+    /** Metres */
+    public static final double profiledReplanDistance = 0.2;
+    /** Degrees */
+    public static final double profiledReplanAngle = 10;
+    /** Metres per second */
+    public static final double profiledReplanSpeed = 0.1;
+    /** Radians per second */
+    public static final double profiledReplanAngularSpeed = 0.2;
+
+    /* Telemetry */
+    /** Seconds between Field2d and module Mechanism2d updates; logging stays at odometry rate */
+    public static final double telemetryDashboardPeriod = 0.05;
+    /** Drive states the odometry thread can queue for the telemetry writer before they are dropped */
+    public static final int telemetryBufferSize = 256;
+    /** Seconds between telemetry writer batches */
+    public static final double telemetryWriterPeriod = 0.02;
+  }
+
+  public static final class Profiler
+  {
+    /** Width of each histogram bucket, seconds */
+    public static final double bucketWidth = 25e-6;
+    /** Number of histogram buckets, durations past the last bucket are counted in an overflow bucket */
+    public static final int bucketCount = 800;
+    /** Seconds between publishing (and clearing) the histograms */
+    public static final double publishPeriod = 1;
+  }
+
+  public static final class Logging
+  {
+    /** Time Epilogue logging may use each loop before lower importance fields are deferred, seconds */
+    public static final double budget = 0.002;
+    /** Loops between logging INFO fields */
+    public static final int infoPeriod = 5;
+    /** Loops between logging DEBUG fields */
+    public static final int debugPeriod = 25;
+    /** Loops a due tier can be deferred for before it is logged regardless of the budget */
+    public static final int maxDeferral = 50;
+    /** Weight of each new measurement in the smoothed logging cost, [0..1] */
+    public static final double costSmoothing = 0.1;
+  }
+
+  public static final class Auto
+  {
+    /** Number of built auto commands kept, most recently used first */
+    public static final int cacheSize = 8;
+
+    /* Auto optimiser cost model */
+    /** Length of the autonomous period, seconds */
+    public static final double duration = 15;
+    /** Time from arriving at a reef lineup to the coral leaving, seconds, from sim */
+    public static final double scoreTime = 0.6;
+    /** Time from arriving at a coral station lineup to holding coral, seconds, from sim */
+    public static final double intakeTime = 1.0;
+    /** Time the optimiser may search for, seconds, after which the best order found so far is returned */
+    public static final double optimiserTimeLimit = 1;
+  }
+
+  public static final class Sim
+  {
+    /** Time a scenario has to reach its lineup when it doesn't set one, seconds */
+    public static final double scenarioTimeout = 10;
+    /** Wall-clock time a scenario worker may run for before it is killed, seconds */
+    public static final double workerTimeout = 120;
   }
 
   public static final class Coral
@@ -111,5 +208,29 @@ public final class Constants
     public static final double rotStdDevBaseline = 999;
     /** How many good MT1 readings to get before setting rotation and moving to MT2 */
     public static final int mt1CyclesNeeded = 10;
+    /** Process vision on its own thread, woken by new frames, rather than in the scheduler loop */
+    public static final boolean useVisionThread = true;
+    /** Send the robot orientation to the cameras from the odometry thread, rather than once per vision cycle */
+    public static final boolean orientationAtOdometryRate = true;
+
+    /* Camera Mounts, robot-relative. These mirror the values set in the Limelight web UI, and are only used in simulation */
+    public static final Transform3d foreCameraMount = new Transform3d(new Translation3d(0.22, 0, 0.2), new Rotation3d(0, Units.degreesToRadians(-10), 0));
+    public static final Transform3d aftCameraMount  = new Transform3d(new Translation3d(-0.22, 0, 0.2), new Rotation3d(0, Units.degreesToRadians(-10), Math.PI));
+
+    /* Limelight Simulation */
+    /** Simulated camera frame rate, Hz */
+    public static final double simFrameRate = 30;
+    /** Simulated total (capture + pipeline) latency, milliseconds */
+    public static final double simLatencyMs = 25;
+    /** Simulated 1 meter, 1 tag stddev for x and y, in meters */
+    public static final double simLinearNoise = 0.02;
+    /** Simulated 1 meter, 1 tag stddev for MT1 rotation, in degrees */
+    public static final double simAngularNoise = 0.5;
+    /** Simulated horizontal field of view, degrees */
+    public static final double simHorizontalFOV = 62.5;
+    /** Simulated vertical field of view, degrees */
+    public static final double simVerticalFOV = 48.9;
+    /** Maximum distance at which the simulated camera can resolve a tag, metres */
+    public static final double simMaxTagDistance = 5;
   }
 }
@@ -1,6 +1,8 @@
 package frc.robot.constants;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.function.BiPredicate;
 
 import edu.wpi.first.math.geometry.Pose2d;
@@ -9,6 +11,7 @@ import edu.wpi.first.math.geometry.Translation2d;
 import edu.wpi.first.math.util.Units;
 import frc.robot.Robot.DriveState;
 import frc.robot.Robot.TargetPosition;
+import frc.robot.util.AllianceService;
 import frc.robot.util.controlTransmutation.Attractor;
 import frc.robot.util.controlTransmutation.ObjectList;
 import frc.robot.util.controlTransmutation.geoFence.*;
@@ -49,26 +52,138 @@ public class FieldConstants
   public static final Pose2d rjLineup = rbLineup.rotateAround(reefCentre, new Rotation2d(Units.degreesToRadians(120)));
   public static final Pose2d rkLineup = raLineup.rotateAround(reefCentre, new Rotation2d(Units.degreesToRadians(60)));
   public static final Pose2d rlLineup = rbLineup.rotateAround(reefCentre, new Rotation2d(Units.degreesToRadians(60)));
-  public static final Pose2d[] reefLineups = {raLineup, rbLineup, rcLineup, reLineup, rfLineup, rgLineup, rhLineup, riLineup, rjLineup, rkLineup, rlLineup};
+  /** Blue reef lineups, indexed a-l */
+  public static final Pose2d[] reefLineups = {raLineup, rbLineup, rcLineup, rdLineup, reLineup, rfLineup, rgLineup, rhLineup, riLineup, rjLineup, rkLineup, rlLineup};
+  /** Reef lineups for each alliance, indexed by AllianceService.index() then a-l */
+  public static final Pose2d[][] allianceReefLineups = {reefLineups, rotateAll(reefLineups)};
 
+  /** Distance of the coral station lineups from the station walls, metres */
+  private static final double stationFaceOffset = 0.4;
+  /** Distance between the coral station lineups along the station walls, metres */
+  private static final double stationSlotSpacing = 0.5;
+
+  /** Heading at the coral stations from the blue driver station's view; positive at the right station, negative at the left, degrees */
+  private static final double stationHeading = 55;
+
+  // Left and right from the blue driver station; slots 1-3 run left to right along the station, as the station attractors do.
+  // Lineups hold the same heading as teleop at each station, so auto and teleop intake facing the same way
+  public static final Pose2d cl1Lineup = stationLineup(GeoFencing.cornerNBlue, false, stationSlotSpacing, -stationHeading);
+  public static final Pose2d cl2Lineup = stationLineup(GeoFencing.cornerNBlue, false, 0, -stationHeading);
+  public static final Pose2d cl3Lineup = stationLineup(GeoFencing.cornerNBlue, false, -stationSlotSpacing, -stationHeading);
+  public static final Pose2d cr1Lineup = stationLineup(GeoFencing.cornerSBlue, true, stationSlotSpacing, stationHeading);
+  public static final Pose2d cr2Lineup = stationLineup(GeoFencing.cornerSBlue, true, 0, stationHeading);
+  public static final Pose2d cr3Lineup = stationLineup(GeoFencing.cornerSBlue, true, -stationSlotSpacing, stationHeading);
+  /** Blue coral station lineups, indexed l1-l3 then r1-r3 */
+  public static final Pose2d[] stationLineups = {cl1Lineup, cl2Lineup, cl3Lineup, cr1Lineup, cr2Lineup, cr3Lineup};
+
+  /** Blue reef then coral station lineups, indexed as {@link #getLineupIndex} */
+  private static final Pose2d[] lineups = concat(reefLineups, stationLineups);
+  /** Reef then coral station lineups for each alliance, indexed by AllianceService.index() then {@link #getLineupIndex} */
+  private static final Pose2d[][] allianceLineups = {lineups, rotateAll(lineups)};
+  /** Start lines for each alliance, indexed by AllianceService.index() */
+  public static final Pose2d[] allianceStartLines = {blueStartLine, redStartLine};
+
+  /** Reef centres for each alliance, indexed by AllianceService.index() */
+  public static final Translation2d[] allianceReefCentres = {GeoFencing.reefBlue.getCentre(), GeoFencing.reefRed.getCentre()};
+  /** Reef face midpoints for each alliance, one per face, indexed by AllianceService.index() then reef sector */
+  private static final List<List<Translation2d>> allianceReefFaces = 
+    List.of(GeoFencing.reefBlue.getEdgeMidPoints(), GeoFencing.reefRed.getEdgeMidPoints());
+  /** Field direction of the first reef face midpoint from the reef centre for each alliance, indexed by AllianceService.index(), radians */
+  public static final double[] allianceReefFirstFace = 
+  {
+    allianceReefFaces.get(0).get(0).minus(allianceReefCentres[0]).getAngle().getRadians(),
+    allianceReefFaces.get(1).get(0).minus(allianceReefCentres[1]).getAngle().getRadians()
+  };
+  /** Field heading facing each reef face, radians, indexed by AllianceService.index() then reef sector, as FieldUtils.getReefSector */
+  public static final double[][] allianceReefHeadings = 
+    {reefHeadings(allianceReefFaces.get(0), allianceReefCentres[0]), reefHeadings(allianceReefFaces.get(1), allianceReefCentres[1])};
+
+  /** Field heading at the coral stations, radians, indexed by AllianceService.index() then 0 for the south station, 1 for the north */
+  public static final double[][] allianceStationHeadings = 
+  {
+    {Units.degreesToRadians(stationHeading), Units.degreesToRadians(-stationHeading)},
+    {Units.degreesToRadians(180 - stationHeading), Units.degreesToRadians(stationHeading - 180)}
+  };
+
+  /**
+   * Returns the blue lineup for the given name, "ra" to "rl" for the reef or "cl1" to "cr3" for the coral stations
+   * @param name Lineup name, unknown names give raLineup
+   */
   public static Pose2d getLineup(String name)
+    {return lineups[getLineupIndex(name)];}
+
+  /**
+   * Returns the lineup for the given name on the current alliance, as an array read
+   * @param name Lineup name, unknown names give the ra lineup
+   */
+  public static Pose2d getAllianceLineup(String name)
+    {return allianceLineups[AllianceService.index()][getLineupIndex(name)];}
+
+  /**
+   * Returns true if the name is a lineup, e.g. "ra" or "cl1"
+   * @param name Lineup name
+   */
+  public static boolean hasLineup(String name)
+    {return findLineup(name) >= 0;}
+
+  /** Returns the index of the named lineup: a-l for the reef, then l1-l3 and r1-r3 for the coral stations. Unknown names give 0 */
+  private static int getLineupIndex(String name)
+    {return Math.max(0, findLineup(name));}
+
+  /** Returns the index of the named lineup, or -1 if there isn't one */
+  private static int findLineup(String name)
   {
-    return switch (name) 
+    if (name.length() == 2 && name.charAt(0) == 'r')
     {
-      case "ra" -> raLineup;
-      case "rb" -> rbLineup;
-      case "rc" -> rcLineup;
-      case "rd" -> rdLineup;
-      case "re" -> reLineup;
-      case "rf" -> rfLineup;
-      case "rg" -> rgLineup;
-      case "rh" -> rhLineup;
-      case "ri" -> riLineup;
-      case "rj" -> rjLineup;
-      case "rk" -> rkLineup;
-      case "rl" -> rlLineup;
-      default -> raLineup;
-    };
+      final int index = name.charAt(1) - 'a';
+      if (index >= 0 && index < reefLineups.length) {return index;}
+    }
+    else if (name.length() == 3 && name.charAt(0) == 'c' && (name.charAt(1) == 'l' || name.charAt(1) == 'r'))
+    {
+      final int slot = name.charAt(2) - '1';
+      if (slot >= 0 && slot < stationLineups.length / 2) 
+        {return reefLineups.length + (name.charAt(1) == 'l' ? 0 : stationLineups.length / 2) + slot;}
+    }
+    return -1;
+  }
+
+  private static Pose2d[] concat(Pose2d[] first, Pose2d[] second)
+  {
+    Pose2d[] joined = Arrays.copyOf(first, first.length + second.length);
+    System.arraycopy(second, 0, joined, first.length, second.length);
+    return joined;
+  }
+
+  /** Returns copies of the blue poses rotated about the field centre, onto the red side */
+  private static Pose2d[] rotateAll(Pose2d[] bluePoses)
+  {
+    Pose2d[] redPoses = new Pose2d[bluePoses.length];
+    for (int i = 0; i < bluePoses.length; i++) {redPoses[i] = bluePoses[i].rotateAround(fieldCentre, Rotation2d.k180deg);}
+    return redPoses;
+  }
+
+  /**
+   * Returns a blue coral station lineup, placed as {@link Line#getRelativePose} places it but with the given heading
+   * @param station Station wall
+   * @param antiNormal Approach the wall from its antinormal side
+   * @param tangentOffset Distance along the wall from its centre, metres
+   * @param heading Field heading, degrees
+   */
+  private static Pose2d stationLineup(Line station, boolean antiNormal, double tangentOffset, double heading)
+  {
+    return new Pose2d
+    (
+      station.getRelativePose(antiNormal, stationFaceOffset, tangentOffset).getTranslation(),
+      Rotation2d.fromDegrees(heading)
+    );
+  }
+
+  /** Returns the field heading facing the reef from each face midpoint, radians */
+  private static double[] reefHeadings(List<Translation2d> midpoints, Translation2d centre)
+  {
+    double[] headings = new double[midpoints.size()];
+    for (int i = 0; i < headings.length; i++) {headings[i] = centre.minus(midpoints.get(i)).getAngle().getRadians();}
+    return headings;
   }
 
   public static final double coralStationRange = 0.6;
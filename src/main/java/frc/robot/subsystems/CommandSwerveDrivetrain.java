@@ -2,6 +2,8 @@ package frc.robot.subsystems;
 
 import static edu.wpi.first.units.Units.*;
 
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
 
 import com.ctre.phoenix6.SignalLogger;
@@ -9,28 +11,39 @@ import com.ctre.phoenix6.Utils;
 import com.ctre.phoenix6.swerve.SwerveDrivetrainConstants;
 import com.ctre.phoenix6.swerve.SwerveModuleConstants;
 import com.ctre.phoenix6.swerve.SwerveRequest;
+import com.ctre.phoenix6.swerve.SwerveRequest.ForwardPerspectiveValue;
+import com.ctre.phoenix6.swerve.SwerveModule.DriveRequestType;
+import com.ctre.phoenix6.swerve.SwerveModule.SteerRequestType;
 
+import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.Matrix;
-import edu.wpi.first.math.controller.PIDController;
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.geometry.Twist2d;
 import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.kinematics.SwerveDriveOdometry;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
 import edu.wpi.first.math.numbers.N1;
 import edu.wpi.first.math.numbers.N3;
 import edu.wpi.first.util.sendable.Sendable;
 import edu.wpi.first.util.sendable.SendableBuilder;
 import edu.wpi.first.wpilibj.DriverStation;
-import edu.wpi.first.wpilibj.DriverStation.Alliance;
 import edu.wpi.first.wpilibj.Notifier;
 import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.Subsystem;
 import edu.wpi.first.wpilibj2.command.sysid.SysIdRoutine;
 import static frc.robot.constants.Constants.Swerve.*;
+import frc.robot.commands.swerve.PoseDrive;
+import frc.robot.commands.swerve.ProfiledPoseDrive;
 import frc.robot.constants.TunerConstants.TunerSwerveDrivetrain;
-import frc.robot.util.FieldUtils;
-import frc.robot.util.controlTransmutation.PIDDriveTransmuter;
+import frc.robot.util.AllianceService;
+import frc.robot.util.LoopProfiler;
+import frc.robot.util.SD;
+import frc.robot.util.SwerveSetpointGenerator;
 
 /**
  * Class that extends the Phoenix 6 SwerveDrivetrain class and implements
@@ -38,19 +51,50 @@ import frc.robot.util.controlTransmutation.PIDDriveTransmuter;
  */
 public class CommandSwerveDrivetrain extends TunerSwerveDrivetrain implements Subsystem, Sendable 
 {
-  private final PIDController thetaController = new PIDController(rotationKP, rotationKI, rotationKD);
-  private final PIDDriveTransmuter pidTransmuter = new PIDDriveTransmuter(driveKP, driveKI, driveKD);
+  /* Callbacks run on the odometry thread after every odometry update */
+  private final CopyOnWriteArrayList<Consumer<SwerveDriveState>> m_odometryListeners = new CopyOnWriteArrayList<>();
+  private volatile Consumer<SwerveDriveState> m_telemetryFunction = null;
+
+  private final LoopProfiler.Section m_odometryProfile = LoopProfiler.section("Odometry");
 
   private static final double kSimLoopPeriod = 0.005; // 5 ms
   private Notifier m_simNotifier = null;
   private double m_lastSimTime;
+  /* Odometry of the simulated modules, without vision fusion; this is the ground truth for simulated sensors */
+  private SwerveDriveOdometry m_simGroundTruth = null;
+  private volatile Pose2d m_simGroundTruthPose = Pose2d.kZero;
+  private volatile Pose2d m_simGroundTruthReset = null;
+
+  /* Lockstep sim: a model of the drivetrain's modules, stepped by HeadlessSim instead of the CTRE device sim */
+  private static boolean s_lockstepSim = false;
+  private SwerveDriveState m_lockstepState = null;
+  private boolean m_lockstepFieldRelative;
+  private double m_lockstepVX;
+  private double m_lockstepVY;
+  private double m_lockstepOmega;
 
   /* Blue alliance sees forward as 0 degrees (toward red alliance wall) */
   private static final Rotation2d kBlueAlliancePerspectiveRotation = Rotation2d.kZero;
   /* Red alliance sees forward as 180 degrees (toward blue alliance wall) */
   private static final Rotation2d kRedAlliancePerspectiveRotation = Rotation2d.k180deg;
-  /* Keep track if we've ever applied the operator perspective before or not */
-  private boolean m_hasAppliedOperatorPerspective = false;
+  private volatile Rotation2d m_operatorForward = kBlueAlliancePerspectiveRotation;
+
+  /* Drive commands' speeds go through the setpoint generator into reused requests */
+  private static final double kNominalPeriod = 0.02;
+  private final SwerveSetpointGenerator m_setpointGenerator = new SwerveSetpointGenerator(getModuleLocations());
+  private final SwerveRequest.ApplyRobotSpeeds m_robotDriveRequest = new SwerveRequest.ApplyRobotSpeeds()
+    .withDriveRequestType(DriveRequestType.OpenLoopVoltage)
+    .withSteerRequestType(SteerRequestType.MotionMagicExpo);
+  /* Field centric, so CTRE turns the speeds robot relative at odometry rate against the latest heading */
+  private final SwerveRequest.FieldCentric m_fieldDriveRequest = new SwerveRequest.FieldCentric()
+    .withForwardPerspective(ForwardPerspectiveValue.BlueAlliance)
+    .withDriveRequestType(DriveRequestType.OpenLoopVoltage)
+    .withSteerRequestType(SteerRequestType.MotionMagicExpo);
+  private double m_lastDriveTime = Double.NEGATIVE_INFINITY;
+  /* Robot relative setpoint from the last limitSetpoint */
+  private double m_setpointVX;
+  private double m_setpointVY;
+  private double m_setpointOmega;
 
   /* Swerve requests to apply during SysId characterization */
   private final SwerveRequest.SysIdSwerveTranslation m_translationCharacterization = new SwerveRequest.SysIdSwerveTranslation();
@@ -148,10 +192,11 @@ public class CommandSwerveDrivetrain extends TunerSwerveDrivetrain implements Su
   ) 
   {
     super(drivetrainConstants, modules);
-    if (Utils.isSimulation()) 
-      {startSimThread();}
+    startSim();
     
-    thetaController.enableContinuousInput(-Math.PI, Math.PI);
+    super.registerTelemetry(this::onOdometryUpdate);
+    // The alliance only changes while disabled, so the perspective never changes under the driver
+    AllianceService.addListener(this::applyOperatorPerspective);
   }
 
   /**
@@ -175,10 +220,11 @@ public class CommandSwerveDrivetrain extends TunerSwerveDrivetrain implements Su
   ) 
   {
     super(drivetrainConstants, odometryUpdateFrequency, modules);
-    if (Utils.isSimulation()) 
-      {startSimThread();}
+    startSim();
     
-    thetaController.enableContinuousInput(-Math.PI, Math.PI);
+    super.registerTelemetry(this::onOdometryUpdate);
+    // The alliance only changes while disabled, so the perspective never changes under the driver
+    AllianceService.addListener(this::applyOperatorPerspective);
   }
 
   /**
@@ -210,10 +256,11 @@ public class CommandSwerveDrivetrain extends TunerSwerveDrivetrain implements Su
   ) 
   {
     super(drivetrainConstants, odometryUpdateFrequency, odometryStandardDeviation, visionStandardDeviation, modules);
-    if (Utils.isSimulation()) 
-      {startSimThread();}
+    startSim();
     
-    thetaController.enableContinuousInput(-Math.PI, Math.PI);
+    super.registerTelemetry(this::onOdometryUpdate);
+    // The alliance only changes while disabled, so the perspective never changes under the driver
+    AllianceService.addListener(this::applyOperatorPerspective);
   }
 
   @Override
@@ -237,6 +284,39 @@ public class CommandSwerveDrivetrain extends TunerSwerveDrivetrain implements Su
     );
   }
 
+  /**
+   * Register the specified lambda to be executed every time our odometry thread updates. 
+   * Runs after any odometry listeners.
+   *
+   * @param telemetryFunction Function to call for telemetry or logging
+   */
+  @Override
+  public void registerTelemetry(Consumer<SwerveDriveState> telemetryFunction)
+    {m_telemetryFunction = telemetryFunction;}
+
+  /**
+   * Adds a callback that runs on the odometry thread after every odometry update. 
+   * Callbacks must be short and non-blocking, as they hold up the odometry loop.
+   *
+   * @param listener Function to call with the updated state
+   */
+  public void addOdometryListener(Consumer<SwerveDriveState> listener)
+    {m_odometryListeners.add(listener);}
+
+  private void onOdometryUpdate(SwerveDriveState state)
+  {
+    m_odometryProfile.start();
+
+    for (int i = 0; i < m_odometryListeners.size(); i++)
+      {m_odometryListeners.get(i).accept(state);}
+
+    final var telemetryFunction = m_telemetryFunction;
+    if (telemetryFunction != null) 
+      {telemetryFunction.accept(state);}
+
+    m_odometryProfile.stop();
+  }
+
   /**
    * Returns a command that applies the specified control request to this swerve drivetrain.
     *
@@ -266,68 +346,299 @@ public class CommandSwerveDrivetrain extends TunerSwerveDrivetrain implements Su
   public Command sysIdDynamic(SysIdRoutine.Direction direction) 
     {return m_sysIdRoutineToApply.dynamic(direction);}
 
+  /**
+   * Drives at robot relative speeds, stepped towards by the {@link SwerveSetpointGenerator} if the "Limit Setpoints" key is on.
+   * Call once per cycle from a command requiring this drivetrain; doesn't allocate while driving
+   * @param vx Forward velocity, metres per second
+   * @param vy Leftward velocity, metres per second
+   * @param omega Anticlockwise angular velocity, radians per second
+   */
+  public void driveRobotRelative(double vx, double vy, double omega)
+  {
+    limitSetpoint(vx, vy, omega);
+
+    m_robotDriveRequest.Speeds.vxMetersPerSecond = m_setpointVX;
+    m_robotDriveRequest.Speeds.vyMetersPerSecond = m_setpointVY;
+    m_robotDriveRequest.Speeds.omegaRadiansPerSecond = m_setpointOmega;
+    setControl(m_robotDriveRequest);
+
+    setLockstepCommand(false, m_setpointVX, m_setpointVY, m_setpointOmega);
+  }
+
+  /**
+   * Drives at field relative speeds, as {@link #driveRobotRelative}. 
+   * The request stays field centric, so translation holds its field direction while the robot turns between cycles
+   * @param vx Velocity away from the blue alliance wall, metres per second
+   * @param vy Velocity towards the left of the blue alliance wall, metres per second
+   * @param omega Anticlockwise angular velocity, radians per second
+   * @param heading Current robot heading
+   */
+  public void driveFieldRelative(double vx, double vy, double omega, Rotation2d heading)
+  {
+    // The modules' limits are robot relative, so the step is limited there and turned back to the field
+    final double cos = heading.getCos();
+    final double sin = heading.getSin();
+    limitSetpoint(vx * cos + vy * sin, -vx * sin + vy * cos, omega);
+    vx = m_setpointVX * cos - m_setpointVY * sin;
+    vy = m_setpointVX * sin + m_setpointVY * cos;
+    omega = m_setpointOmega;
+
+    setControl(m_fieldDriveRequest.withVelocityX(vx).withVelocityY(vy).withRotationalRate(omega));
+
+    setLockstepCommand(true, vx, vy, omega);
+  }
+
+  /**
+   * Drives at speeds relative to the operator perspective, as {@link #driveFieldRelative}
+   * @param vx Velocity away from the operator's alliance wall, metres per second
+   * @param vy Velocity to the operator's left, metres per second
+   * @param omega Anticlockwise angular velocity, radians per second
+   */
+  public void driveOperatorRelative(double vx, double vy, double omega)
+  {
+    final double cos = m_operatorForward.getCos();
+    final double sin = m_operatorForward.getSin();
+    driveFieldRelative(vx * cos - vy * sin, vx * sin + vy * cos, omega, getDriveState().Pose.getRotation());
+  }
+
+  /** Records the speeds last commanded, for the lockstep model */
+  private void setLockstepCommand(boolean fieldRelative, double vx, double vy, double omega)
+  {
+    m_lockstepFieldRelative = fieldRelative;
+    m_lockstepVX = vx;
+    m_lockstepVY = vy;
+    m_lockstepOmega = omega;
+  }
+
+  /** Steps the setpoint generator towards robot relative speeds if the "Limit Setpoints" key is on, leaving the setpoint in the fields */
+  private void limitSetpoint(double vx, double vy, double omega)
+  {
+    if (SD.SETPOINT_LIMITS.getAsBoolean())
+    {
+      final double now = Timer.getFPGATimestamp();
+      double dt = now - m_lastDriveTime;
+      m_lastDriveTime = now;
+
+      // Another request has been driving, so the last setpoint is stale
+      if (dt > setpointResetTime)
+      {
+        final SwerveDriveState state = getDriveState();
+        m_setpointGenerator.reset(state.Speeds, state.ModuleStates);
+        dt = kNominalPeriod;
+      }
+
+      m_setpointGenerator.calculate(vx, vy, omega, dt);
+      vx = m_setpointGenerator.getVX();
+      vy = m_setpointGenerator.getVY();
+      omega = m_setpointGenerator.getOmega();
+    }
+    // Restart from the measured state if the limits are turned on
+    else {m_lastDriveTime = Double.NEGATIVE_INFINITY;}
+
+    m_setpointVX = vx;
+    m_setpointVY = vy;
+    m_setpointOmega = omega;
+  }
+
+  /** Returns the field direction the operator sees as forward */
+  public Rotation2d getOperatorForward()
+    {return m_operatorForward;}
+
+  /**
+   * Returns a command that drives to the given pose, finishing once within the lineup tolerance
+   * @param targetSupplier Supplier of the field pose to drive to, read once per cycle
+   * @param swerveStateSup Supplier of the current drivetrain state
+   * @return Command to run
+   */
   public Command poseDriveCommand(Supplier<Pose2d> targetSupplier, Supplier<SwerveDriveState> swerveStateSup) 
+    {return new PoseDrive(this, targetSupplier, swerveStateSup);}
+
+  /**
+   * Returns a command that drives to the given pose along trapezoidal profiles, finishing once the profiles are complete
+   * and the robot is within the lineup tolerance
+   * @param targetSupplier Supplier of the field pose to drive to, read once per cycle
+   * @param swerveStateSup Supplier of the current drivetrain state
+   * @return Command to run
+   */
+  public ProfiledPoseDrive profiledPoseDriveCommand(Supplier<Pose2d> targetSupplier, Supplier<SwerveDriveState> swerveStateSup) 
+    {return new ProfiledPoseDrive(this, targetSupplier, swerveStateSup);}
+
+  /** Applies the operator perspective for the alliance; run by AllianceService whenever it changes */
+  private void applyOperatorPerspective(boolean redAlliance)
   {
-    final var driveRequest = new SwerveRequest.ApplyRobotSpeeds();    
-
-    pidTransmuter.withTargetPoseSup(targetSupplier);
-
-    return 
-    run
-    (() -> {
-      final Pose2d pose = swerveStateSup.get().Pose;
-      final Pose2d target = targetSupplier.get();
-
-      final double speedTheta = 
-        Math.min(thetaController.calculate(pose.getRotation().getRadians(), target.getRotation().getRadians()), maxAngularVelocity);
-      final Translation2d throttleXY = pidTransmuter.process(pose.getTranslation());
-
-      setControl
-      (
-        driveRequest.withSpeeds
-        (
-          ChassisSpeeds.fromFieldRelativeSpeeds
-            (
-              new ChassisSpeeds
-              (
-                throttleXY.getX() * maxSpeed,
-                throttleXY.getY() * maxSpeed,
-                speedTheta
-              ),
-              pose.getRotation()
-            )
-        )
-      );
-    }).until(() -> FieldUtils.atPose(swerveStateSup.get().Pose, targetSupplier.get()));
+    m_operatorForward = redAlliance ? kRedAlliancePerspectiveRotation : kBlueAlliancePerspectiveRotation;
+    setOperatorPerspectiveForward(m_operatorForward);
   }
 
   @Override
-  public void periodic() 
+  public void resetPose(Pose2d pose)
   {
-    /*
-      * Periodically try to apply the operator perspective.
-      * If we haven't applied the operator perspective before, then we should apply it regardless of DS state.
-      * This allows us to correct the perspective in case the robot code restarts mid-match.
-      * Otherwise, only check and apply the operator perspective if the DS is disabled.
-      * This ensures driving behavior doesn't change until an explicit disable event occurs during testing.
-      */
-    if (!m_hasAppliedOperatorPerspective || DriverStation.isDisabled()) 
+    super.resetPose(pose);
+    m_simGroundTruthReset = pose;
+    if (m_lockstepState != null) 
     {
-      DriverStation.getAlliance().ifPresent
-      (allianceColor -> 
-        {
-          setOperatorPerspectiveForward
-          (
-            allianceColor == Alliance.Red
-              ? kRedAlliancePerspectiveRotation
-              : kBlueAlliancePerspectiveRotation
-          );
-          m_hasAppliedOperatorPerspective = true;
-        }
-      );
+      m_lockstepState.Pose = pose;
+      m_simGroundTruthPose = pose;
     }
   }
 
+  /** Returns the true pose of the simulated robot, unaffected by vision measurements */
+  public Pose2d getSimGroundTruth()
+    {return m_simGroundTruthPose;}
+
+  private void updateSimGroundTruth()
+  {
+    final SwerveDriveState state = getState();
+    final Pose2d resetPose = m_simGroundTruthReset;
+
+    if (m_simGroundTruth == null)
+    {
+      m_simGroundTruth = new SwerveDriveOdometry(getKinematics(), state.RawHeading, state.ModulePositions, state.Pose);
+    }
+    else if (resetPose != null)
+    {
+      m_simGroundTruthReset = null;
+      m_simGroundTruth.resetPosition(state.RawHeading, state.ModulePositions, resetPose);
+    }
+
+    m_simGroundTruthPose = m_simGroundTruth.update(state.RawHeading, state.ModulePositions);
+  }
+
+  /**
+   * Replaces the CTRE device sim of every drivetrain created afterwards with a module model, stepped with {@link #stepLockstepSim}.
+   * Each module steers at the steering rate and accelerates within the wheel-force and motor torque limits, on the sim clock,
+   * so its results depend only on the commands, not on wall-clock timing
+   */
+  public static void enableLockstepSim()
+    {s_lockstepSim = true;}
+
+  /** Returns true if drivetrains are simulated by the lockstep model rather than the CTRE device sim */
+  public static boolean isLockstepSim()
+    {return s_lockstepSim;}
+
+  private void startSim()
+  {
+    if (!Utils.isSimulation()) {return;}
+
+    if (s_lockstepSim)
+    {
+      final int moduleCount = getModuleLocations().length;
+      m_lockstepState = new SwerveDriveState();
+      m_lockstepState.Pose = Pose2d.kZero;
+      m_lockstepState.RawHeading = Rotation2d.kZero;
+      m_lockstepState.Speeds = new ChassisSpeeds();
+      m_lockstepState.ModuleStates = new SwerveModuleState[moduleCount];
+      m_lockstepState.ModuleTargets = new SwerveModuleState[moduleCount];
+      m_lockstepState.ModulePositions = new SwerveModulePosition[moduleCount];
+      for (int i = 0; i < moduleCount; i++)
+      {
+        m_lockstepState.ModuleStates[i] = new SwerveModuleState();
+        m_lockstepState.ModuleTargets[i] = new SwerveModuleState();
+        m_lockstepState.ModulePositions[i] = new SwerveModulePosition();
+      }
+    }
+    else {startSimThread();}
+  }
+
+  /**
+   * Advances the lockstep model by dt at the last commanded speeds, which are zero while disabled, 
+   * in fixed substeps at the CTRE sim rate. Call from the thread stepping the sim clock, between robot loops
+   * @param dt Step length, seconds
+   */
+  public void stepLockstepSim(double dt)
+  {
+    if (DriverStation.isDisabled()) 
+    {
+      m_lockstepVX = 0;
+      m_lockstepVY = 0;
+      m_lockstepOmega = 0;
+    }
+
+    final int substeps = Math.max(1, (int)Math.round(dt / kSimLoopPeriod));
+    for (int i = 0; i < substeps; i++) {stepLockstepModules(dt / substeps);}
+
+    m_lockstepState.Timestamp = Timer.getFPGATimestamp();
+    m_simGroundTruthPose = m_lockstepState.Pose;
+  }
+
+  /** Moves every module of the lockstep model towards the commanded speeds for one substep, then integrates the pose from the modules */
+  private void stepLockstepModules(double dt)
+  {
+    final SwerveDriveState state = m_lockstepState;
+    final Translation2d[] locations = getModuleLocations();
+
+    double vx = m_lockstepVX;
+    double vy = m_lockstepVY;
+    if (m_lockstepFieldRelative)
+    {
+      // As CTRE does at odometry rate, against the latest heading
+      final double cos = state.Pose.getRotation().getCos();
+      final double sin = state.Pose.getRotation().getSin();
+      vx = m_lockstepVX * cos + m_lockstepVY * sin;
+      vy = -m_lockstepVX * sin + m_lockstepVY * cos;
+    }
+
+    double sumVX = 0;
+    double sumVY = 0;
+    double sumMoment = 0;
+    double sumRadiusSquared = 0;
+    for (int i = 0; i < locations.length; i++)
+    {
+      final double x = locations[i].getX();
+      final double y = locations[i].getY();
+      final double targetX = vx - m_lockstepOmega * y;
+      final double targetY = vy + m_lockstepOmega * x;
+      double targetSpeed = Math.hypot(targetX, targetY);
+
+      // Hold the angle when stopping, and drive backwards rather than turn more than a quarter turn, as CTRE's modules do
+      double angle = state.ModuleStates[i].angle.getRadians();
+      double steerError = targetSpeed > 1e-6 ? MathUtil.angleModulus(Math.atan2(targetY, targetX) - angle) : 0;
+      if (Math.abs(steerError) > Math.PI / 2)
+      {
+        targetSpeed = -targetSpeed;
+        steerError = MathUtil.angleModulus(steerError + Math.PI);
+      }
+      final double steer = MathUtil.clamp(steerError, -moduleMaxSteerRate * dt, moduleMaxSteerRate * dt);
+      angle += steer;
+
+      // Only the part of the target along the wheel is driven; speeding up is limited by the motor torque near free speed
+      final double goalSpeed = targetSpeed * Math.cos(steerError - steer);
+      double speed = state.ModuleStates[i].speedMetersPerSecond;
+      final double acceleration = Math.abs(goalSpeed) > Math.abs(speed) && goalSpeed * speed >= 0 ?
+        Math.min(moduleMaxAcceleration, moduleStallAcceleration * Math.max(0, 1 - Math.abs(speed) / maxSpeed)) :
+        moduleMaxAcceleration;
+      speed += MathUtil.clamp(goalSpeed - speed, -acceleration * dt, acceleration * dt);
+
+      final Rotation2d moduleAngle = Rotation2d.fromRadians(angle);
+      state.ModuleStates[i].angle = moduleAngle;
+      state.ModuleStates[i].speedMetersPerSecond = speed;
+      state.ModuleTargets[i].angle = Rotation2d.fromRadians(angle + steerError - steer);
+      state.ModuleTargets[i].speedMetersPerSecond = targetSpeed;
+      state.ModulePositions[i].angle = moduleAngle;
+      state.ModulePositions[i].distanceMeters += speed * dt;
+
+      final double moduleX = speed * moduleAngle.getCos();
+      final double moduleY = speed * moduleAngle.getSin();
+      sumVX += moduleX;
+      sumVY += moduleY;
+      sumMoment += x * moduleY - y * moduleX;
+      sumRadiusSquared += x * x + y * y;
+    }
+
+    // Least squares fit of the chassis speeds to the module velocities
+    final double chassisVX = sumVX / locations.length;
+    final double chassisVY = sumVY / locations.length;
+    final double chassisOmega = sumMoment / sumRadiusSquared;
+
+    state.Pose = state.Pose.exp(new Twist2d(chassisVX * dt, chassisVY * dt, chassisOmega * dt));
+    state.RawHeading = state.RawHeading.plus(Rotation2d.fromRadians(chassisOmega * dt));
+    state.Speeds = new ChassisSpeeds(chassisVX, chassisVY, chassisOmega);
+  }
+
+  /** Returns the drivetrain state, from the lockstep model in a headless sim or from CTRE's odometry otherwise */
+  public SwerveDriveState getDriveState()
+    {return m_lockstepState != null ? m_lockstepState : getState();}
+
   private void startSimThread() 
   {
     m_lastSimTime = Utils.getCurrentTimeSeconds();
@@ -343,6 +654,7 @@ public class CommandSwerveDrivetrain extends TunerSwerveDrivetrain implements Su
     
         /* use the measured time delta, get battery voltage from WPILib */
         updateSimState(deltaTime, RobotController.getBatteryVoltage());
+        updateSimGroundTruth();
       }
     );
     m_simNotifier.startPeriodic(kSimLoopPeriod);
@@ -1,7 +1,7 @@
 package frc.robot.subsystems;
 
 import java.util.HashSet;
-import java.util.function.Supplier;
+import java.util.function.DoubleSupplier;
 
 import edu.wpi.first.wpilibj.GenericHID.RumbleType;
 import edu.wpi.first.wpilibj2.command.Command;
@@ -10,18 +10,22 @@ import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import edu.wpi.first.wpilibj2.command.button.CommandXboxController;
 import edu.wpi.first.wpilibj2.command.button.Trigger;
 
+import frc.robot.util.LoopProfiler;
+
 public class RumbleRequester extends SubsystemBase
 {
   private HashSet<String> queue = new HashSet<String>();
   private final CommandXboxController controller;
   private final RumbleType side;
-  private final Supplier<Double> strengthSup;
+  private final DoubleSupplier strengthSup;
+  private final LoopProfiler.Section periodicProfile;
 
-  public RumbleRequester(CommandXboxController controller, RumbleType side, Supplier<Double> strengthSup)
+  public RumbleRequester(CommandXboxController controller, RumbleType side, DoubleSupplier strengthSup)
   {
     this.controller = controller;
     this.side = side;
     this.strengthSup = strengthSup;
+    periodicProfile = LoopProfiler.section("RumbleRequester" + controller.getHID().getPort() + side.name() + ".periodic");
   }
 
   private void add(String rumbleID)
@@ -51,6 +55,8 @@ public class RumbleRequester extends SubsystemBase
   @Override
   public void periodic() 
   {
-    controller.setRumble(side, queue.isEmpty() ? 0 : strengthSup.get());
+    periodicProfile.start();
+    controller.setRumble(side, queue.isEmpty() ? 0 : strengthSup.getAsDouble());
+    periodicProfile.stop();
   }
 }
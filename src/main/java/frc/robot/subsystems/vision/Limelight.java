@@ -4,44 +4,266 @@
 
 package frc.robot.subsystems.vision;
 
+import java.util.Arrays;
 import java.util.Optional;
 
+import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.util.Units;
+import edu.wpi.first.networktables.DoubleArrayPublisher;
+import edu.wpi.first.networktables.DoubleArraySubscriber;
+import edu.wpi.first.networktables.DoublePublisher;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.PubSubOption;
+import edu.wpi.first.networktables.TimestampedDoubleArray;
 
-import frc.robot.util.libs.LimelightHelpers;
 import frc.robot.util.libs.LimelightHelpers.PoseEstimate;
+import frc.robot.util.libs.LimelightHelpers.RawFiducial;
+
+/**
+ * A single Limelight camera </p>
+ * All topics are opened once on construction, so reads and writes don't go through the LimelightHelpers table lookups
+ */
+public class Limelight
+{
+  private static final int valsPerFiducial = 7;
 
-public class Limelight  
-{    
   private final String name;
-  
+
+  /* Camera outputs */
+  private final DoubleArraySubscriber mt1Sub;
+  private final DoubleArraySubscriber mt2Sub;
+
+  /* Camera settings */
+  private final DoubleArrayPublisher orientationPub;
+  private final DoubleArrayPublisher idFilterPub;
+  private final DoublePublisher pipelinePub;
+  private final DoublePublisher imuModePub;
+
+  private final double[] orientationBuf = new double[6];
+
+  /* Unpacked frames, reused so a poll only allocates the pose; each is valid until the next poll */
+  private final PoseEstimate mt1Estimate = new PoseEstimate();
+  private final PoseEstimate mt2Estimate = new PoseEstimate();
+  /** MegaTag2 fiducials; views[n] is an array of the first n, made the first time a frame has n */
+  private RawFiducial[] fiducials = new RawFiducial[0];
+  private RawFiducial[][] fiducialViews = {new RawFiducial[0]};
+
+  /* Frame tracking */
+  private long lastMT1Change = 0;
+  private long lastMT2Change = 0;
+  private long lastMT1Timestamp = 0;
+  private long lastMT2Timestamp = 0;
+  private long frameCount = 0;
+  private long duplicateCount = 0;
+  private long dropCount = 0;
+  private long acceptedCount = 0;
+  private long rejectedCount = 0;
+
+  private final DoublePublisher framesPub;
+  private final DoublePublisher duplicatesPub;
+  private final DoublePublisher dropsPub;
+  private final DoublePublisher acceptedPub;
+  private final DoublePublisher rejectedPub;
+
   /** Creates a new Limelight. */
-  public Limelight(String name) 
-    {this.name = name;}
+  public Limelight(String name)
+  {
+    this.name = name;
+
+    NetworkTable table = NetworkTableInstance.getDefault().getTable(name);
+
+    mt1Sub = table.getDoubleArrayTopic("botpose_wpiblue").subscribe(new double[0]);
+    // Keep every frame, so none are coalesced away before they can be counted
+    mt2Sub = table.getDoubleArrayTopic("botpose_orb_wpiblue").subscribe(new double[0], PubSubOption.sendAll(true), PubSubOption.pollStorage(10));
+
+    orientationPub = table.getDoubleArrayTopic("robot_orientation_set").publish();
+    idFilterPub    = table.getDoubleArrayTopic("fiducial_id_filters_set").publish();
+    pipelinePub    = table.getDoubleTopic("pipeline").publish();
+    imuModePub     = table.getDoubleTopic("imumode_set").publish();
+
+    NetworkTable statsTable = NetworkTableInstance.getDefault().getTable("Vision").getSubTable(name);
+    framesPub     = statsTable.getDoubleTopic("Frames").publish();
+    duplicatesPub = statsTable.getDoubleTopic("Duplicates").publish();
+    dropsPub      = statsTable.getDoubleTopic("Drops").publish();
+    acceptedPub   = statsTable.getDoubleTopic("Accepted").publish();
+    rejectedPub   = statsTable.getDoubleTopic("Rejected").publish();
+  }
 
   public void setIMUMode(int mode)
-    {LimelightHelpers.SetIMUMode(name, mode);}
+    {imuModePub.set(mode);}
 
+  /** Returns the MT1 rotation if a new, close enough frame has arrived since the last call */
   public Optional<Rotation2d> getLimelightRotation()
   {
-    var mt1 = LimelightHelpers.getBotPoseEstimate_wpiBlue(name);
+    // Checked first, as reading the value allocates
+    final long change = mt1Sub.getLastChange();
+    if (change == lastMT1Change) {return Optional.empty();}
+    lastMT1Change = change;
 
-    return (mt1 != null && mt1.avgTagDist < 4) ? 
-      Optional.of(mt1.pose.getRotation()) : 
+    final TimestampedDoubleArray sample = mt1Sub.getAtomic();
+    if (sample.timestamp == lastMT1Timestamp) {return Optional.empty();}
+    lastMT1Timestamp = sample.timestamp;
+
+    var mt1 = toPoseEstimate(sample, mt1Estimate, false);
+
+    return (mt1 != null && mt1.avgTagDist < 4) ?
+      Optional.of(mt1.pose.getRotation()) :
       Optional.empty();
   }
 
   protected void updateValidIDs(int[] validIDs)
-    {LimelightHelpers.SetFiducialIDFiltersOverride(name, validIDs);}
+  {
+    double[] validIDsDouble = new double[validIDs.length];
+    for (int i = 0; i < validIDs.length; i++) {validIDsDouble[i] = validIDs[i];}
+    idFilterPub.set(validIDsDouble);
+  }
 
   protected void updatePipeline(int pipelineIndex)
-    {LimelightHelpers.setPipelineIndex(name, pipelineIndex);}
+    {pipelinePub.set(pipelineIndex);}
+
+  /**
+   * Sends the robot orientation for the MegaTag2 solve, without flushing
+   * @param yawDeg Robot heading, degrees
+   * @param yawRateDps Robot angular velocity, degrees per second
+   */
+  public void setRobotOrientation(double yawDeg, double yawRateDps)
+  {
+    orientationBuf[0] = yawDeg;
+    orientationBuf[1] = yawRateDps;
+    orientationPub.set(orientationBuf);
+  }
+
+  /**
+   * Returns the newest MegaTag2 frame that hasn't been handed out before </p>
+   * Polls with nothing new are counted as duplicates, and frames superseded before they were read are counted as drops. 
+   * Frames too short to hold a pose are counted as rejected, as they're never passed on to be accepted or rejected
+   * @return The newest unseen frame, reused by the next poll, or null if there isn't one or it can't be unpacked
+   */
+  public PoseEstimate pollMT2()
+  {
+    // Checked first, so a poll with nothing new doesn't allocate
+    final long change = mt2Sub.getLastChange();
+    if (change == lastMT2Change)
+    {
+      duplicateCount++;
+      return null;
+    }
+    lastMT2Change = change;
+
+    final TimestampedDoubleArray[] samples = mt2Sub.readQueue();
+
+    TimestampedDoubleArray newest = null;
+    for (var sample : samples)
+    {
+      if (sample.timestamp <= lastMT2Timestamp) {continue;}
+      if (newest != null) {dropCount++;}
+      newest = sample;
+      lastMT2Timestamp = sample.timestamp;
+    }
+
+    if (newest == null)
+    {
+      duplicateCount++;
+      return null;
+    }
+
+    frameCount++;
+    final PoseEstimate mt2 = toPoseEstimate(newest, mt2Estimate, true);
+    if (mt2 == null) {rejectedCount++;}
+    return mt2;
+  }
 
-  public PoseEstimate getMT2(double headingDeg)
+  /** Records whether the last frame handed out was fused */
+  protected void recordResult(boolean accepted)
   {
-    LimelightHelpers.SetRobotOrientation(name, headingDeg, 0, 0, 0, 0, 0);
-    return LimelightHelpers.getBotPoseEstimate_wpiBlue_MegaTag2(name);
+    if (accepted) {acceptedCount++;}
+    else {rejectedCount++;}
   }
 
+  /** Publishes the frame counters for this camera */
+  protected void publishStats()
+  {
+    framesPub.set(frameCount);
+    duplicatesPub.set(duplicateCount);
+    dropsPub.set(dropCount);
+    acceptedPub.set(acceptedCount);
+    rejectedPub.set(rejectedCount);
+  }
+
+  public String getName()
+    {return name;}
+
+  /** Returns the subscriber that updates with every new MegaTag2 frame */
+  protected DoubleArraySubscriber getFrameSubscriber()
+    {return mt2Sub;}
+
   public void periodic() {}
+
+  /**
+   * Unpacks a botpose array in the Limelight layout: pose, latency, tag stats, then the raw fiducials.
+   * Only MegaTag2 fiducials are unpacked, as MT1 frames are only read for their rotation
+   * @param sample Timestamped botpose array, as received
+   * @param estimate Estimate to fill
+   * @param isMegaTag2 Whether the array came from a MegaTag2 topic
+   * @return The estimate timestamped at capture, or null if the camera hasn't published a pose
+   */
+  private PoseEstimate toPoseEstimate(TimestampedDoubleArray sample, PoseEstimate estimate, boolean isMegaTag2)
+  {
+    final double[] poseArray = sample.value;
+
+    if (poseArray.length < 11) {return null;}
+
+    final double latency = poseArray[6];
+    final int tagCount = (int)poseArray[7];
+
+    estimate.pose = new Pose2d(poseArray[0], poseArray[1], new Rotation2d(Units.degreesToRadians(poseArray[5])));
+    // Server timestamp is microseconds at publish; back-date it to capture
+    estimate.timestampSeconds = (sample.timestamp / 1000000.0) - (latency / 1000.0);
+    estimate.latency = latency;
+    estimate.tagCount = tagCount;
+    estimate.tagSpan = poseArray[8];
+    estimate.avgTagDist = poseArray[9];
+    estimate.avgTagArea = poseArray[10];
+    estimate.isMegaTag2 = isMegaTag2;
+    if (isMegaTag2)
+    {
+      // As many as the array holds, so a frame shorter than its tag count has no empty entries
+      final int fiducialCount = Math.max(0, Math.min(tagCount, (poseArray.length - 11) / valsPerFiducial));
+      estimate.rawFiducials = unpackFiducials(poseArray, fiducialCount);
+    }
+
+    return estimate;
+  }
+
+  /** Unpacks the first count fiducials of a botpose array into the reused fiducials, returning the view of that many */
+  private RawFiducial[] unpackFiducials(double[] poseArray, int count)
+  {
+    if (count >= fiducialViews.length)
+    {
+      fiducials = Arrays.copyOf(fiducials, count);
+      for (int i = 0; i < count; i++) 
+      {
+        if (fiducials[i] == null) {fiducials[i] = new RawFiducial(0, 0, 0, 0, 0, 0, 0);}
+      }
+      fiducialViews = Arrays.copyOf(fiducialViews, count + 1);
+    }
+    if (fiducialViews[count] == null) {fiducialViews[count] = Arrays.copyOf(fiducials, count);}
+
+    final RawFiducial[] view = fiducialViews[count];
+    for (int i = 0; i < count; i++)
+    {
+      final int base = 11 + (i * valsPerFiducial);
+      final RawFiducial fiducial = view[i];
+      fiducial.id = (int)poseArray[base];
+      fiducial.txnc = poseArray[base + 1];
+      fiducial.tync = poseArray[base + 2];
+      fiducial.ta = poseArray[base + 3];
+      fiducial.distToCamera = poseArray[base + 4];
+      fiducial.distToRobot = poseArray[base + 5];
+      fiducial.ambiguity = poseArray[base + 6];
+    }
+    return view;
+  }
 }
@@ -0,0 +1,433 @@
+package frc.robot.subsystems.vision;
+
+import java.util.Random;
+import java.util.function.Supplier;
+
+import edu.wpi.first.apriltag.AprilTag;
+import edu.wpi.first.apriltag.AprilTagFieldLayout;
+import edu.wpi.first.apriltag.AprilTagFields;
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Pose3d;
+import edu.wpi.first.math.geometry.Transform3d;
+import edu.wpi.first.math.interpolation.TimeInterpolatableBuffer;
+import edu.wpi.first.math.util.Units;
+import edu.wpi.first.networktables.DoubleArrayPublisher;
+import edu.wpi.first.networktables.DoubleArraySubscriber;
+import edu.wpi.first.networktables.DoublePublisher;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.PubSubOption;
+import edu.wpi.first.networktables.StringPublisher;
+import edu.wpi.first.networktables.TimestampedDoubleArray;
+import edu.wpi.first.wpilibj.Notifier;
+import edu.wpi.first.wpilibj.Timer;
+
+import frc.robot.constants.FieldConstants;
+import static frc.robot.constants.Constants.Vision.*;
+
+/**
+ * Simulation stand-in for a Limelight </p>
+ * Publishes botpose, rawfiducials and the JSON dump to the camera's table in the same format as the real camera,
+ * built from the ground-truth robot pose, the camera mount, and the 2025 AprilTag layout
+ */
+public class LimelightSim
+{
+  private static final AprilTagFieldLayout tagLayout = AprilTagFieldLayout.loadField(AprilTagFields.k2025ReefscapeWelded);
+  /** Printed tag edge length, metres */
+  private static final double tagSize = Units.inchesToMeters(6.5);
+  /** Pose history sample period, seconds */
+  private static final double kSimLoopPeriod = 0.005;
+  private static final int valsPerFiducial = 7;
+  /** Number of received robot orientations kept for matching to capture times */
+  private static final int orientationHistory = 64;
+
+  private final String name;
+  private final Transform3d cameraMount;
+  private final Supplier<Pose2d> truePoseSup;
+  private final Notifier m_simNotifier;
+  private final Random random;
+
+  private final TimeInterpolatableBuffer<Pose2d> poseHistory = TimeInterpolatableBuffer.createBuffer(1);
+
+  private double frameRate = simFrameRate;
+  private double latencyMs = simLatencyMs;
+  private double linearNoise = simLinearNoise;
+  private double angularNoise = simAngularNoise;
+
+  private double lastFrameTime = 0;
+  private long heartbeat = 0;
+
+  /* Per-frame working values, sized for every tag on the field */
+  private final double[] fiducialBuf = new double[tagLayout.getTags().size() * valsPerFiducial];
+  private final double[] tagInCameraBuf = new double[tagLayout.getTags().size() * 3];
+  private final StringBuilder json = new StringBuilder(2048);
+
+  /* Received robot orientations, as a ring of NT timestamps (seconds) and yaws (degrees) */
+  private final double[] orientationTimes = new double[orientationHistory];
+  private final double[] orientationYaws = new double[orientationHistory];
+  private int orientationCount = 0;
+
+  /* MegaTag2 error against ground truth */
+  private double mt2ErrorSquaredSum = 0;
+  private long mt2ErrorCount = 0;
+  private final DoublePublisher mt2ErrorPub;
+  private final DoublePublisher mt2RMSErrorPub;
+  private final DoublePublisher mt2HeadingErrorPub;
+
+  /* Camera outputs */
+  private final DoubleArrayPublisher botposePub;
+  private final DoubleArrayPublisher botposeRedPub;
+  private final DoubleArrayPublisher botposeBluePub;
+  private final DoubleArrayPublisher botposeOrbBluePub;
+  private final DoubleArrayPublisher rawFiducialsPub;
+  private final DoublePublisher tvPub;
+  private final DoublePublisher tlPub;
+  private final DoublePublisher clPub;
+  private final DoublePublisher hbPub;
+  private final StringPublisher jsonPub;
+
+  /* Robot inputs */
+  private final DoubleArraySubscriber orientationSub;
+  private final DoubleArraySubscriber idFilterSub;
+
+  /**
+   * Creates a simulated Limelight publishing to the table of the given name
+   * @param name NetworkTables name of the camera, matching the Limelight it stands in for
+   * @param cameraMount Robot-relative position and orientation of the camera
+   * @param truePoseSup Supplier of the ground-truth robot pose
+   */
+  public LimelightSim(String name, Transform3d cameraMount, Supplier<Pose2d> truePoseSup)
+  {
+    this.name = name;
+    this.cameraMount = cameraMount;
+    this.truePoseSup = truePoseSup;
+    random = new Random(name.hashCode());
+
+    NetworkTable table = NetworkTableInstance.getDefault().getTable(name);
+
+    botposePub        = table.getDoubleArrayTopic("botpose").publish();
+    botposeRedPub     = table.getDoubleArrayTopic("botpose_wpired").publish();
+    botposeBluePub    = table.getDoubleArrayTopic("botpose_wpiblue").publish();
+    botposeOrbBluePub = table.getDoubleArrayTopic("botpose_orb_wpiblue").publish();
+    rawFiducialsPub   = table.getDoubleArrayTopic("rawfiducials").publish();
+    tvPub             = table.getDoubleTopic("tv").publish();
+    tlPub             = table.getDoubleTopic("tl").publish();
+    clPub             = table.getDoubleTopic("cl").publish();
+    hbPub             = table.getDoubleTopic("hb").publish();
+    jsonPub           = table.getStringTopic("json").publish();
+
+    orientationSub = table.getDoubleArrayTopic("robot_orientation_set").subscribe(new double[0], PubSubOption.pollStorage(orientationHistory));
+    idFilterSub    = table.getDoubleArrayTopic("fiducial_id_filters_set").subscribe(new double[0]);
+
+    NetworkTable errorTable = NetworkTableInstance.getDefault().getTable("LimelightSim").getSubTable(name);
+    mt2ErrorPub        = errorTable.getDoubleTopic("MT2Error").publish();
+    mt2RMSErrorPub     = errorTable.getDoubleTopic("MT2RMSError").publish();
+    mt2HeadingErrorPub = errorTable.getDoubleTopic("MT2HeadingError").publish();
+
+    m_simNotifier = new Notifier(this::update);
+    m_simNotifier.setName("LimelightSim " + name);
+  }
+
+  /** Starts publishing frames */
+  public LimelightSim start()
+  {
+    lastFrameTime = Timer.getFPGATimestamp();
+    m_simNotifier.startPeriodic(kSimLoopPeriod);
+    return this;
+  }
+
+  /** Stops publishing frames */
+  public void stop()
+    {m_simNotifier.stop();}
+
+  /**
+   * Sets the simulated frame rate
+   * @param frameRate Frames per second
+   * @return The LimelightSim with the new frame rate
+   */
+  public LimelightSim withFrameRate(double frameRate)
+  {
+    this.frameRate = frameRate;
+    return this;
+  }
+
+  /**
+   * Sets the simulated total latency between capture and publishing
+   * @param latencyMs Latency, milliseconds
+   * @return The LimelightSim with the new latency
+   */
+  public LimelightSim withLatency(double latencyMs)
+  {
+    this.latencyMs = latencyMs;
+    return this;
+  }
+
+  /**
+   * Sets the simulated measurement noise, scaled the same way as the Vision std devs (distance² / tag count)
+   * @param linearNoise 1 meter, 1 tag stddev for x and y, metres
+   * @param angularNoise 1 meter, 1 tag stddev for MT1 rotation, degrees
+   * @return The LimelightSim with the new noise
+   */
+  public LimelightSim withNoise(double linearNoise, double angularNoise)
+  {
+    this.linearNoise = linearNoise;
+    this.angularNoise = angularNoise;
+    return this;
+  }
+
+  private void update()
+  {
+    final double now = Timer.getFPGATimestamp();
+    poseHistory.addSample(now, truePoseSup.get());
+
+    for (TimestampedDoubleArray orientation : orientationSub.readQueue())
+    {
+      if (orientation.value.length == 0) {continue;}
+      orientationTimes[orientationCount % orientationHistory] = orientation.timestamp / 1000000.0;
+      orientationYaws[orientationCount % orientationHistory] = orientation.value[0];
+      orientationCount++;
+    }
+
+    if (now - lastFrameTime < 1 / frameRate) {return;}
+    lastFrameTime = now;
+
+    // The frame published now was captured one latency ago
+    final double captureTime = now - (latencyMs / 1000);
+    poseHistory.getSample(captureTime).ifPresent(truePose -> publishFrame(truePose, captureTime));
+  }
+
+  /**
+   * Finds the robot yaw the camera would have solved against: the latest orientation received at or before capture
+   * @return Yaw in degrees, or NaN if none has been received
+   */
+  private double getOrientationAt(double captureTime)
+  {
+    for (int i = orientationCount - 1; i >= Math.max(0, orientationCount - orientationHistory); i--)
+    {
+      if (orientationTimes[i % orientationHistory] <= captureTime) {return orientationYaws[i % orientationHistory];}
+    }
+    return Double.NaN;
+  }
+
+  private void publishFrame(Pose2d truePose, double captureTime)
+  {
+    final Pose3d cameraPose = new Pose3d(truePose).transformBy(cameraMount);
+    final double[] validIDs = idFilterSub.get();
+    final double hfov = Units.degreesToRadians(simHorizontalFOV);
+    final double vfov = Units.degreesToRadians(simVerticalFOV);
+
+    int tagCount = 0;
+    double distSum = 0;
+    double areaSum = 0;
+    double centroidX = 0;
+    double centroidY = 0;
+    double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE;
+    double maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+
+    for (AprilTag tag : tagLayout.getTags())
+    {
+      if (!isValidID(tag.ID, validIDs)) {continue;}
+
+      final Pose3d tagInCamera = tag.pose.relativeTo(cameraPose);
+      final double distance = tagInCamera.getTranslation().getNorm();
+
+      // Tag must be in front of the lens, within range, and facing the camera (tag +X points out of its face)
+      if (tagInCamera.getX() <= 0 || distance > simMaxTagDistance) {continue;}
+      if (cameraPose.relativeTo(tag.pose).getX() <= 0) {continue;}
+
+      final double yaw = Math.atan2(tagInCamera.getY(), tagInCamera.getX());
+      final double pitch = Math.atan2(tagInCamera.getZ(), tagInCamera.getX());
+      if (Math.abs(yaw) > hfov / 2 || Math.abs(pitch) > vfov / 2) {continue;}
+
+      final double area = 100 * (tagSize * tagSize) / (distance * distance * hfov * vfov);
+      final double distToRobot = Math.hypot(tag.pose.getX() - truePose.getX(), tag.pose.getY() - truePose.getY());
+
+      // Limelight angles are positive right and up
+      final int base = tagCount * valsPerFiducial;
+      fiducialBuf[base]     = tag.ID;
+      fiducialBuf[base + 1] = -Math.toDegrees(yaw);
+      fiducialBuf[base + 2] = Math.toDegrees(pitch);
+      fiducialBuf[base + 3] = area;
+      fiducialBuf[base + 4] = distance;
+      fiducialBuf[base + 5] = distToRobot;
+      fiducialBuf[base + 6] = Math.min(0.05 * distance, 1);
+
+      tagInCameraBuf[tagCount * 3]     = tagInCamera.getX();
+      tagInCameraBuf[tagCount * 3 + 1] = tagInCamera.getY();
+      tagInCameraBuf[tagCount * 3 + 2] = tagInCamera.getZ();
+
+      distSum += distance;
+      areaSum += area;
+      centroidX += tag.pose.getX();
+      centroidY += tag.pose.getY();
+      minX = Math.min(minX, tag.pose.getX());
+      minY = Math.min(minY, tag.pose.getY());
+      maxX = Math.max(maxX, tag.pose.getX());
+      maxY = Math.max(maxY, tag.pose.getY());
+      tagCount++;
+    }
+
+    heartbeat++;
+    hbPub.set(heartbeat);
+    tlPub.set(latencyMs);
+    clPub.set(0);
+    tvPub.set(tagCount > 0 ? 1 : 0);
+
+    if (tagCount == 0)
+    {
+      final double[] empty = new double[0];
+      botposePub.set(empty);
+      botposeRedPub.set(empty);
+      botposeBluePub.set(empty);
+      botposeOrbBluePub.set(empty);
+      rawFiducialsPub.set(empty);
+      publishJson(0, null, 0, 0, 0);
+      return;
+    }
+
+    final double avgDist = distSum / tagCount;
+    final double avgArea = areaSum / tagCount;
+    final double tagSpan = tagCount > 1 ? Math.hypot(maxX - minX, maxY - minY) : 0;
+    centroidX /= tagCount;
+    centroidY /= tagCount;
+
+    final double noiseFactor = (avgDist * avgDist) / tagCount;
+    final double trueYaw = truePose.getRotation().getRadians();
+
+    /* MegaTag1: full solve, noisy in all three axes */
+    final double mt1X = truePose.getX() + random.nextGaussian() * linearNoise * noiseFactor;
+    final double mt1Y = truePose.getY() + random.nextGaussian() * linearNoise * noiseFactor;
+    final double mt1Yaw = Math.toDegrees(trueYaw) + random.nextGaussian() * angularNoise * noiseFactor;
+
+    /*
+     * MegaTag2: translation is solved from the robot-relative tag offsets rotated by the supplied heading,
+     * so any error in robot_orientation_set swings the solution around the tag centroid
+     */
+    final double orientation = getOrientationAt(captureTime);
+    final double givenYaw = Double.isNaN(orientation) ? trueYaw : Units.degreesToRadians(orientation);
+    final double headingError = MathUtil.angleModulus(givenYaw - trueYaw);
+    final double offsetX = truePose.getX() - centroidX;
+    final double offsetY = truePose.getY() - centroidY;
+    final double mt2X = centroidX + (offsetX * Math.cos(headingError)) - (offsetY * Math.sin(headingError)) + random.nextGaussian() * linearNoise * noiseFactor;
+    final double mt2Y = centroidY + (offsetX * Math.sin(headingError)) + (offsetY * Math.cos(headingError)) + random.nextGaussian() * linearNoise * noiseFactor;
+    final double mt2Yaw = Math.toDegrees(givenYaw);
+
+    final double mt2Error = Math.hypot(mt2X - truePose.getX(), mt2Y - truePose.getY());
+    mt2ErrorSquaredSum += mt2Error * mt2Error;
+    mt2ErrorCount++;
+    mt2ErrorPub.set(mt2Error);
+    mt2RMSErrorPub.set(Math.sqrt(mt2ErrorSquaredSum / mt2ErrorCount));
+    mt2HeadingErrorPub.set(Math.toDegrees(headingError));
+
+    final double[] botposeBlue = buildBotpose(mt1X, mt1Y, mt1Yaw, tagCount, tagSpan, avgDist, avgArea);
+    final double[] botposeOrbBlue = buildBotpose(mt2X, mt2Y, mt2Yaw, tagCount, tagSpan, avgDist, avgArea);
+    final double[] botposeRed = buildBotpose
+    (
+      FieldConstants.fieldLength - mt1X,
+      FieldConstants.fieldWidth - mt1Y,
+      mt1Yaw + 180,
+      tagCount, tagSpan, avgDist, avgArea
+    );
+    final double[] botpose = buildBotpose
+    (
+      mt1X - FieldConstants.fieldCentre.getX(),
+      mt1Y - FieldConstants.fieldCentre.getY(),
+      mt1Yaw,
+      tagCount, tagSpan, avgDist, avgArea
+    );
+
+    final double[] rawFiducials = new double[tagCount * valsPerFiducial];
+    System.arraycopy(fiducialBuf, 0, rawFiducials, 0, rawFiducials.length);
+
+    botposePub.set(botpose);
+    botposeRedPub.set(botposeRed);
+    botposeBluePub.set(botposeBlue);
+    botposeOrbBluePub.set(botposeOrbBlue);
+    rawFiducialsPub.set(rawFiducials);
+    publishJson(tagCount, botposeBlue, tagSpan, avgDist, avgArea);
+  }
+
+  /**
+   * Builds a botpose array in the Limelight layout: pose, latency, tag stats, then the raw fiducials
+   * @param yaw Heading, degrees
+   */
+  private double[] buildBotpose(double x, double y, double yaw, int tagCount, double tagSpan, double avgDist, double avgArea)
+  {
+    final double[] botpose = new double[11 + tagCount * valsPerFiducial];
+
+    botpose[0] = x;
+    botpose[1] = y;
+    botpose[5] = yaw;
+    botpose[6] = latencyMs;
+    botpose[7] = tagCount;
+    botpose[8] = tagSpan;
+    botpose[9] = avgDist;
+    botpose[10] = avgArea;
+    System.arraycopy(fiducialBuf, 0, botpose, 11, tagCount * valsPerFiducial);
+
+    return botpose;
+  }
+
+  /** Publishes the subset of the JSON dump read by LimelightHelpers.getLatestResults */
+  private void publishJson(int tagCount, double[] botposeBlue, double tagSpan, double avgDist, double avgArea)
+  {
+    final double nowMs = Timer.getFPGATimestamp() * 1000;
+
+    json.setLength(0);
+    json.append("{\"pID\":0")
+      .append(",\"tl\":").append(latencyMs)
+      .append(",\"cl\":0")
+      .append(",\"ts\":").append(nowMs)
+      .append(",\"ts_rio\":").append(nowMs - latencyMs)
+      .append(",\"v\":").append(tagCount > 0 ? 1 : 0);
+
+    if (botposeBlue != null)
+    {
+      json.append(",\"botpose_wpiblue\":[");
+      for (int i = 0; i < 6; i++) {json.append(i == 0 ? "" : ",").append(botposeBlue[i]);}
+      json.append("]")
+        .append(",\"botpose_tagcount\":").append(tagCount)
+        .append(",\"botpose_span\":").append(tagSpan)
+        .append(",\"botpose_avgdist\":").append(avgDist)
+        .append(",\"botpose_avgarea\":").append(avgArea);
+    }
+
+    json.append(",\"Fiducial\":[");
+    for (int i = 0; i < tagCount; i++)
+    {
+      final int base = i * valsPerFiducial;
+      json.append(i == 0 ? "{" : ",{")
+        .append("\"fID\":").append((int)fiducialBuf[base])
+        .append(",\"fam\":\"36H11C\"")
+        .append(",\"tx\":").append(fiducialBuf[base + 1])
+        .append(",\"ty\":").append(fiducialBuf[base + 2])
+        .append(",\"tx_nocross\":").append(fiducialBuf[base + 1])
+        .append(",\"ty_nocross\":").append(fiducialBuf[base + 2])
+        .append(",\"ta\":").append(fiducialBuf[base + 3])
+        // Camera space is X right, Y down, Z forward
+        .append(",\"t6t_cs\":[")
+        .append(-tagInCameraBuf[i * 3 + 1]).append(",")
+        .append(-tagInCameraBuf[i * 3 + 2]).append(",")
+        .append(tagInCameraBuf[i * 3]).append(",0,0,0]}");
+    }
+    json.append("]}");
+
+    jsonPub.set(json.toString());
+  }
+
+  private static boolean isValidID(int id, double[] validIDs)
+  {
+    if (validIDs.length == 0) {return true;}
+
+    for (double validID : validIDs)
+    {
+      if ((int)validID == id) {return true;}
+    }
+    return false;
+  }
+
+  /** Returns the NetworkTables name of the simulated camera */
+  public String getName()
+    {return name;}
+}
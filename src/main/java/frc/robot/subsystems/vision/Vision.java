@@ -4,21 +4,32 @@
 
 package frc.robot.subsystems.vision;
 
-import java.util.ArrayList;
-import java.util.function.Supplier;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReference;
 
 import com.ctre.phoenix6.Utils;
 
 import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.Matrix;
-import edu.wpi.first.math.Pair;
 import edu.wpi.first.math.VecBuilder;
 import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.numbers.N1;
 import edu.wpi.first.math.numbers.N3;
+import edu.wpi.first.networktables.DoublePublisher;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableEvent;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.NetworkTableListenerPoller;
+import edu.wpi.first.util.WPIUtilJNI;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 
 import frc.robot.Robot;
+import frc.robot.util.LoopProfiler;
 import frc.robot.util.SD;
 import static frc.robot.constants.Constants.Vision.*;
 
@@ -27,22 +38,62 @@ public class Vision extends SubsystemBase
   public enum TagPOI {REEF, BARGE, PROCESSOR, CORALSTATION}
   
   private final PoseEstimateConsumer estimateConsumer;
-  private final Supplier<Pair<Double, Double>> rotationDataSup;
   private final Limelight[] lls;
 
+  /* Latest orientation from the odometry thread */
+  private volatile double yawDeg = 0;
+  private volatile double yawRateDps = 0;
+
   private int pipelineIndex = (int)SD.LL_EXPOSURE.defaultValue();
 
-  private ArrayList<Double> rotationBuf = new ArrayList<Double>();
-  private boolean rotationKnown = false;
+  /* The last MT1 headings, degrees, as a ring */
+  private final double[] rotationBuf = new double[mt1CyclesNeeded];
+  private int rotationCount = 0;
+  private int rotationNext = 0;
+  /** Gyro reset from the MT1 headings, applied by the next drain so it happens on the odometry thread */
+  private final AtomicReference<Double> pendingYaw = new AtomicReference<Double>();
+  private volatile boolean rotationKnown = false;
   private boolean lastCycleRotationKnown = false;
 
-  /** Creates a new Vision. */
-  public Vision(PoseEstimateConsumer estimateConsumer, Supplier<Pair<Double, Double>> rotationDataSup, Limelight... lls) 
+  /* Threaded processing */
+  private final ConcurrentLinkedQueue<VisionMeasurement> measurementQueue = new ConcurrentLinkedQueue<VisionMeasurement>();
+  /** Cameras to poll for a new frame; all of them when run periodically, otherwise the ones that woke the vision thread */
+  private final boolean[] framePending;
+  private final Thread visionThread;
+  private final DoublePublisher threadProcessTimePub;
+  private final DoublePublisher threadFramePeriodPub;
+  private final DoublePublisher queueDepthPub;
+
+  private final LoopProfiler.Section periodicProfile = LoopProfiler.section("Vision.periodic");
+
+  /** 
+   * Creates a new Vision. 
+   * If Constants.Vision.useVisionThread is set, processing runs on its own thread, woken by new camera frames, 
+   * and measurements are queued until drained by {@link #drainMeasurements()}. 
+   * The robot orientation is taken from {@link #setRobotOrientation(double, double)}, which must be called with every odometry update. 
+   * With no cameras, as in a headless sim, it does nothing
+   */
+  public Vision(PoseEstimateConsumer estimateConsumer, Limelight... lls) 
   {
     this.estimateConsumer = estimateConsumer;
-    this.rotationDataSup = rotationDataSup;
     this.lls = lls;
+    framePending = new boolean[lls.length];
+    Arrays.fill(framePending, true);
     setActivePOI(TagPOI.REEF);
+
+    NetworkTable table = NetworkTableInstance.getDefault().getTable("Vision");
+    threadProcessTimePub = table.getDoubleTopic("ThreadProcessTime").publish();
+    threadFramePeriodPub = table.getDoubleTopic("ThreadFramePeriod").publish();
+    queueDepthPub = table.getDoubleTopic("QueueDepth").publish();
+
+    if (useVisionThread && lls.length > 0)
+    {
+      visionThread = new Thread(this::runVisionThread, "Vision");
+      visionThread.setDaemon(true);
+      visionThread.start();
+    }
+    else
+      {visionThread = null;}
   }
 
   public void setActivePOI(TagPOI activePOI) 
@@ -74,20 +125,115 @@ public class Vision extends SubsystemBase
 
   public void resetRotation() {rotationKnown = false;}
 
+  /**
+   * Records the robot orientation for processing, and if enabled sends it to every camera and flushes it, for the MegaTag2 solve. 
+   * Intended to be run on the odometry thread, so the cameras solve against the freshest heading
+   * @param yawDeg Robot heading, degrees
+   * @param yawRateDps Robot angular velocity, degrees per second
+   */
+  public void setRobotOrientation(double yawDeg, double yawRateDps)
+  {
+    this.yawDeg = yawDeg;
+    this.yawRateDps = yawRateDps;
+
+    if (!orientationAtOdometryRate) {return;}
+
+    for (var ll : lls) {ll.setRobotOrientation(yawDeg, yawRateDps);}
+    NetworkTableInstance.getDefault().flush();
+  }
+
   @Override
   public void periodic() 
   {
-    if (SD.LL_TOGGLE.get()) 
+    periodicProfile.start();
+    if (visionThread == null) {process();}
+    periodicProfile.stop();
+  }
+
+  /**
+   * Passes all queued measurements to the estimate consumer, after any gyro reset from the MT1 headings. 
+   * Intended to be run on the odometry thread, so estimator replays and gyro resets happen alongside odometry updates
+   */
+  public void drainMeasurements()
+  {
+    final Double yaw = pendingYaw.getAndSet(null);
+    if (yaw != null) {Robot.setYaw(yaw);}
+
+    VisionMeasurement measurement;
+    while ((measurement = measurementQueue.poll()) != null)
+      {estimateConsumer.accept(measurement.pose(), measurement.timestampSeconds(), measurement.stdDevs());}
+  }
+
+  private void runVisionThread()
+  {
+    final NetworkTableListenerPoller poller = new NetworkTableListenerPoller(NetworkTableInstance.getDefault());
+    for (var ll : lls) {poller.addListener(ll.getFrameSubscriber(), EnumSet.of(NetworkTableEvent.Kind.kValueAll));}
+
+    double lastFrameTime = Timer.getFPGATimestamp();
+
+    try
     {
-      for (var ll : lls)
+      while (!Thread.currentThread().isInterrupted())
       {
-        var rotationData = rotationDataSup.get();
-        double heading = rotationData.getFirst();
-        double omegaRps = rotationData.getSecond();
+        WPIUtilJNI.waitForObject(poller.getHandle());
+
+        Arrays.fill(framePending, false);
+        for (var event : poller.readQueue())
+        {
+          if (event.valueData == null) {continue;}
+          for (int i = 0; i < lls.length; i++)
+          {
+            if (event.valueData.subentry == lls[i].getFrameSubscriber().getHandle()) {framePending[i] = true;}
+          }
+        }
+
+        final double startTime = Timer.getFPGATimestamp();
+        process();
+        final double endTime = Timer.getFPGATimestamp();
 
-        var mt2 = ll.getMT2(heading);
+        threadProcessTimePub.set(endTime - startTime);
+        threadFramePeriodPub.set(startTime - lastFrameTime);
+        queueDepthPub.set(measurementQueue.size());
+        lastFrameTime = startTime;
+      }
+    }
+    catch (InterruptedException e) {/* Shutting down */}
+    finally {poller.close();}
+  }
+
+  private void submit(Pose2d pose, double timestampSeconds, Matrix<N3, N1> stdDevs)
+  {
+    if (visionThread == null)
+      {estimateConsumer.accept(pose, timestampSeconds, stdDevs);}
+    else
+      {measurementQueue.offer(new VisionMeasurement(pose, timestampSeconds, stdDevs));}
+  }
+
+  private void process()
+  {
+    if (SD.LL_TOGGLE.getAsBoolean()) 
+    {
+      for (int i = 0; i < lls.length; i++)
+      {
+        // Polling a camera with nothing pending would count a duplicate for a frame that was never sent
+        if (!framePending[i]) {continue;}
+        var ll = lls[i];
+
+        double heading = yawDeg;
+        double omegaRps = Math.toRadians(yawRateDps);
+
+        if (!orientationAtOdometryRate)
+        {
+          ll.setRobotOrientation(heading, 0);
+          NetworkTableInstance.getDefault().flush();
+        }
+
+        var mt2 = ll.pollMT2();
+
+        if (mt2 == null) {continue;}
         
-        boolean useUpdate = !(mt2 == null || mt2.tagCount == 0 || omegaRps > 2.0);
+        boolean useUpdate = !(mt2.tagCount == 0 || omegaRps > 2.0);
+        ll.recordResult(useUpdate);
         
         if (useUpdate) 
         {
@@ -96,9 +242,11 @@ public class Vision extends SubsystemBase
           double linearStdDev = linearStdDevBaseline * stdDevFactor;
           double rotStdDev = rotStdDevBaseline * stdDevFactor;
 
-          estimateConsumer.accept(mt2.pose, Utils.fpgaToCurrentTime(mt2.timestampSeconds), VecBuilder.fill(linearStdDev, linearStdDev, rotStdDev));
+          submit(mt2.pose, Utils.fpgaToCurrentTime(mt2.timestampSeconds), VecBuilder.fill(linearStdDev, linearStdDev, rotStdDev));
         }
       }
+
+      for (var ll : lls) {ll.publishStats();}
     }
 
     if (!rotationKnown) 
@@ -107,41 +255,38 @@ public class Vision extends SubsystemBase
 
       for (var ll : lls) 
       {
-        ll.getLimelightRotation().ifPresent
-        (
-          rotationReading ->
+        final Optional<Rotation2d> rotationReading = ll.getLimelightRotation();
+        if (rotationReading.isEmpty()) {continue;}
+
+        rotationBuf[rotationNext] = rotationReading.get().getDegrees();
+        rotationNext = (rotationNext + 1) % rotationBuf.length;
+        rotationCount = Math.min(rotationCount + 1, rotationBuf.length);
+
+        if (rotationCount == rotationBuf.length)
+        {
+          double lowest = rotationBuf[0];
+          double highest = rotationBuf[0];
+
+          for (double reading : rotationBuf)
+          {
+            lowest = Math.min(lowest, reading);
+            highest = Math.max(highest, reading);
+          }
+
+          if (highest - lowest < 1)
           {
-            rotationBuf.add(0, rotationReading.getDegrees());
-    
-            if (rotationBuf.size() > mt1CyclesNeeded)
-              {rotationBuf.remove(mt1CyclesNeeded);}
-      
-            if (rotationBuf.size() == mt1CyclesNeeded)
-            {
-              double lowest = rotationBuf.get(0).doubleValue();
-              double highest = rotationBuf.get(0).doubleValue();
-              
-              for(var reading : rotationBuf)
-              {
-                lowest = Math.min(lowest, reading.doubleValue());
-                highest = Math.max(highest, reading.doubleValue());
-              }
-              
-              if (highest - lowest < 1)
-              {
-                rotationKnown = true;
-                Robot.setYaw((highest + lowest) / 2);
-              }
-            }
+            rotationKnown = true;
+            pendingYaw.set((highest + lowest) / 2);
           }
-        );
+        }
       }
 
       if (!lastCycleRotationKnown) 
       {
         if (rotationKnown) 
         {
-          rotationBuf.clear();
+          rotationCount = 0;
+          rotationNext = 0;
           lastCycleRotationKnown = true;
           //RobotContainer.s_Swerve.resetPose(new Pose2d(RobotContainer.swerveState.Pose.getTranslation(), new Rotation2d(Math.toRadians(RobotContainer.s_Swerve.getPigeon2().getYaw().getValueAsDouble()))));
         }
@@ -149,6 +294,8 @@ public class Vision extends SubsystemBase
     }
   }
 
+  private static record VisionMeasurement(Pose2d pose, double timestampSeconds, Matrix<N3, N1> stdDevs) {}
+
   @FunctionalInterface
   public static interface PoseEstimateConsumer 
   {
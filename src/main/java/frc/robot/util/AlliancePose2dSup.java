@@ -10,6 +10,8 @@ import frc.robot.constants.FieldConstants;
 public class AlliancePose2dSup implements Supplier<Pose2d>
 {
   private final Pose2d poseBlue;
+  /** Blue pose rotated about the field centre, built once rather than on every get */
+  private final Pose2d poseRed;
 
   /**
    * Constructs a new AlliancePose2dSup based on blue origin
@@ -18,17 +20,20 @@ public class AlliancePose2dSup implements Supplier<Pose2d>
    * @param rotation
    */
   public AlliancePose2dSup(double x, double y, double rotation)
-    {poseBlue = Conversions.buildPose(x, y, rotation);}
+    {this(Conversions.buildPose(x, y, rotation));}
 
   public AlliancePose2dSup(Translation2d translation, Rotation2d rotation)
-    {poseBlue = new Pose2d(translation, rotation);}
+    {this(new Pose2d(translation, rotation));}
 
   public AlliancePose2dSup(Pose2d pose)
-    {poseBlue = pose;}
+  {
+    poseBlue = pose;
+    poseRed = pose.rotateAround(FieldConstants.fieldCentre, Rotation2d.k180deg);
+  }
 
   @Override
   public Pose2d get() 
   {
-    return FieldUtils.isRedAlliance() ? poseBlue.rotateAround(FieldConstants.fieldCentre, Rotation2d.k180deg) : poseBlue;
+    return AllianceService.isRed() ? poseRed : poseBlue;
   }
 }
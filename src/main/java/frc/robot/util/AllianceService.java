@@ -0,0 +1,58 @@
+package frc.robot.util;
+
+import java.util.ArrayList;
+import java.util.function.Consumer;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.DriverStation.Alliance;
+
+/**
+ * Cached alliance colour </p>
+ * The DS is only read by {@link #update()}, which the robot runs while disabled or while the alliance is unknown,
+ * so the alliance can't change under an enabled robot. Reads are a field read. Until the DS reports an alliance, blue is assumed.
+ */
+public class AllianceService
+{
+  public static final int blueIndex = 0;
+  public static final int redIndex = 1;
+
+  private static final ArrayList<Consumer<Boolean>> listeners = new ArrayList<Consumer<Boolean>>();
+
+  private static volatile boolean redAlliance = false;
+  private static volatile boolean known = false;
+
+  /** Rereads the alliance from the DS, notifying the listeners if it has changed */
+  public static void update()
+  {
+    var alliance = DriverStation.getAlliance();
+    if (alliance.isEmpty()) {return;}
+
+    final boolean red = alliance.get() == Alliance.Red;
+    if (known && red == redAlliance) {return;}
+
+    redAlliance = red;
+    known = true;
+
+    for (int i = 0; i < listeners.size(); i++) {listeners.get(i).accept(red);}
+  }
+
+  /** Returns true if the DS has reported red */
+  public static boolean isRed() {return redAlliance;}
+
+  /** Returns true once the DS has reported an alliance */
+  public static boolean isKnown() {return known;}
+
+  /** Returns {@link #redIndex} or {@link #blueIndex}, for indexing per-alliance arrays */
+  public static int index() {return redAlliance ? redIndex : blueIndex;}
+
+  /**
+   * Adds a listener, run on the main thread whenever the alliance changes </p>
+   * If the alliance is already known, the listener is run immediately
+   * @param listener Consumer of whether the alliance is red
+   */
+  public static void addListener(Consumer<Boolean> listener)
+  {
+    listeners.add(listener);
+    if (known) {listener.accept(redAlliance);}
+  }
+}
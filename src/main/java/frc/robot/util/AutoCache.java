@@ -0,0 +1,169 @@
+package frc.robot.util;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+import com.ctre.phoenix6.swerve.SwerveDrivetrain.SwerveDriveState;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj2.command.Command;
+import frc.robot.constants.Constants;
+import frc.robot.constants.FieldConstants;
+import frc.robot.subsystems.CommandSwerveDrivetrain;
+import frc.robot.subsystems.CoralRoller;
+import frc.robot.util.AutoFactories.AutoStep;
+
+/**
+ * Auto commands built ahead of time, so autonomousInit only has to schedule one </p>
+ * Every change to the auto string is parsed and validated on a background thread, with any error shown on the dashboard.
+ * While disabled, the main thread builds the command for the latest parse; commands are keyed by the normalised auto string,
+ * the alliance and the lineup mode, as each changes the poses planned for. The most recently used are kept, so switching back
+ * to an earlier auto string doesn't rebuild it. A command's first drive is planned from where the robot was when it was built;
+ * if the robot has been moved since, that drive replans when it starts
+ */
+public class AutoCache
+{
+  /** Result of parsing one auto string; exactly one of steps and error is null */
+  private static record ParsedAuto(String input, String normalised, List<AutoStep> steps, String error) {}
+
+  private final CoralRoller s_Coral;
+  private final CommandSwerveDrivetrain s_Swerve;
+  private final Supplier<SwerveDriveState> swerveStateSup;
+
+  /** Runs the parses and optimisations, in order */
+  private final ExecutorService worker = Executors.newSingleThreadExecutor
+  (
+    runnable ->
+    {
+      Thread thread = new Thread(runnable, "AutoWorker");
+      thread.setDaemon(true);
+      thread.setPriority(Thread.MIN_PRIORITY);
+      return thread;
+    }
+  );
+
+  private final Map<String, Command> cache = new LinkedHashMap<String, Command>(16, 0.75f, true)
+  {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, Command> eldest)
+      {return size() > Constants.Auto.cacheSize;}
+  };
+
+  /** Latest parse, written only by the worker thread; parses run in order, so this is always the newest string's */
+  private volatile ParsedAuto parsed;
+
+  /* What the prepared command was built for, so an unchanged parse is a few comparisons */
+  private ParsedAuto preparedParse;
+  private boolean preparedRed;
+  private boolean preparedProfiled;
+  private Command prepared;
+
+  /**
+   * Creates the cache, parsing the auto string now and whenever it changes
+   * @param s_Coral Coral subsystem for the auto steps
+   * @param s_Swerve Drivetrain for the auto steps
+   * @param swerveStateSup Supplier of the current drivetrain state
+   */
+  public AutoCache(CoralRoller s_Coral, CommandSwerveDrivetrain s_Swerve, Supplier<SwerveDriveState> swerveStateSup)
+  {
+    this.s_Coral = s_Coral;
+    this.s_Swerve = s_Swerve;
+    this.swerveStateSup = swerveStateSup;
+
+    SD.AUTO_STRING.onChange(input -> worker.execute(() -> parsed = parse(input)));
+  }
+
+  private static ParsedAuto parse(String input)
+  {
+    final String normalised = AutoFactories.normalise(input);
+    if (normalised.isEmpty()) {return new ParsedAuto(input, normalised, List.of(), null);}
+
+    try {return new ParsedAuto(input, normalised, AutoFactories.parse(normalised), null);}
+    catch (IllegalArgumentException e) {return new ParsedAuto(input, normalised, null, e.getMessage());}
+  }
+
+  /**
+   * Builds or looks up the command for the latest parse, if the parse, alliance or lineup mode has changed since the last call </p>
+   * Run on the main thread while disabled. Parse errors are shown on the dashboard and reported to the DS, and prepare no command
+   */
+  public void prepare()
+  {
+    final ParsedAuto latest = parsed;
+    if (latest != null) {prepare(latest);}
+  }
+
+  private void prepare(ParsedAuto latest)
+  {
+    final boolean red = AllianceService.isRed();
+    final boolean profiled = SD.PROFILED_LINEUP.getAsBoolean();
+    if (latest == preparedParse && red == preparedRed && profiled == preparedProfiled) {return;}
+
+    if (latest != preparedParse)
+    {
+      SD.AUTO_ERROR.put(latest.error() == null ? "" : latest.error());
+      if (latest.error() != null) {DriverStation.reportWarning("Invalid auto string: " + latest.error(), false);}
+    }
+
+    preparedParse = latest;
+    preparedRed = red;
+    preparedProfiled = profiled;
+    prepared = null;
+
+    if (latest.steps() == null || latest.steps().isEmpty()) {return;}
+
+    final String key = latest.normalised() + (red ? "|red" : "|blue") + (profiled ? "|profiled" : "|pid");
+    prepared = cache.get(key);
+    if (prepared != null) {return;}
+
+    prepared = AutoFactories.buildCommand(latest.steps(), s_Coral, s_Swerve, swerveStateSup);
+    cache.put(key, prepared);
+  }
+
+  /**
+   * Finds the best auto for the dashboard's targets and stations on the background thread, then puts it in the auto string,
+   * which is parsed and prepared as if typed. Errors are shown on the dashboard
+   * @param start Current robot pose, on either alliance
+   */
+  public void optimise(Pose2d start)
+  {
+    final String targets = SD.AUTO_TARGETS.get();
+    final String stations = SD.AUTO_STATIONS.get();
+    // The optimiser works on blue-side lineups
+    final Pose2d blueStart = AllianceService.isRed() ? start.rotateAround(FieldConstants.fieldCentre, Rotation2d.k180deg) : start;
+
+    worker.execute
+    (
+      () ->
+      {
+        try
+        {
+          AutoOptimiser.Result result = AutoOptimiser.optimise(blueStart, AutoOptimiser.parseNames(targets), AutoOptimiser.parseNames(stations));
+          if (result.scored() == 0) {SD.AUTO_ERROR.put("No target can be scored in auto");}
+          else {SD.AUTO_STRING.put(result.autoString());}
+        }
+        catch (IllegalArgumentException e) {SD.AUTO_ERROR.put(e.getMessage());}
+      }
+    );
+  }
+
+  /**
+   * Returns the command for an auto string; if the background parse hasn't caught up with the string, it is parsed now.
+   * That parse isn't stored, so it can't overwrite a newer one from the worker
+   * @param commandInput Auto string as typed
+   * @return The auto command, or null if the string is empty or invalid
+   */
+  public Command get(String commandInput)
+  {
+    ParsedAuto latest = parsed;
+    if (latest == null || !latest.input().equals(commandInput)) {latest = parse(commandInput);}
+
+    prepare(latest);
+    return prepared;
+  }
+}
@@ -1,13 +1,18 @@
 package frc.robot.util;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.function.Supplier;
 
 import com.ctre.phoenix6.swerve.SwerveDrivetrain.SwerveDriveState;
 
 import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Translation2d;
 import edu.wpi.first.math.util.Units;
+import edu.wpi.first.util.datalog.StringLogEntry;
+import edu.wpi.first.wpilibj.DataLogManager;
 import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.Command.InterruptionBehavior;
@@ -20,65 +25,247 @@ import frc.robot.subsystems.CoralRoller;
 
 public class AutoFactories 
 {
+  /** DataLog entry recording each auto step's command phrase as it starts */
+  public static final String stepLogName = "Auto/Step";
+  /** Logged to the step entry when the last step finishes */
+  public static final String stepDoneMarker = "Done";
+
+  private static StringLogEntry stepLog;
+
+  /**
+   * Removes all whitespace from an auto string and makes it lowercase, so equivalent strings compare equal
+   * @param commandInput Auto string as typed
+   * @return The normalised auto string
+   */
+  public static String normalise(String commandInput)
+    {return commandInput.replaceAll("\\s", "").toLowerCase();}
+
+  /**
+   * A parsed auto step </p>
+   * Positions and lineups are blue-side; they are flipped for the alliance when the command is built
+   * @param phrase The step's command phrase, as logged when it starts
+   * @param type The step's letter
+   * @param value Seconds for w, match seconds elapsed for t, heading degrees for g or NaN to turn around
+   * @param position Blue-side target position for g, otherwise null
+   * @param lineup Blue-side lineup for r and c, otherwise null
+   */
+  public static record AutoStep(String phrase, char type, double value, Translation2d position, Pose2d lineup) {}
+
+  /**
+   * Splits a string of auto command phrases and parses each one, without building any commands, so it can run off the main thread
+   * @param commandInput The string of commands to split, seperated by commas (e.g. "g2.5:4;180,ra,w0.5,t10")
+   * @return The parsed steps, in the same order
+   * @throws IllegalArgumentException Naming the first step that isn't valid
+   */
+  public static List<AutoStep> parse(String commandInput)
+  {
+    // Removes all whitespace characters from the single-String command phrases, ensures it's all lowercase, and then splits it into individual strings
+    final String[] splitCommands = normalise(commandInput).split(",");
+    final List<AutoStep> steps = new ArrayList<AutoStep>(splitCommands.length);
+
+    for (int i = 0; i < splitCommands.length; i++)
+    {
+      try {steps.add(parseStep(splitCommands[i]));}
+      catch (RuntimeException e)
+      {
+        throw new IllegalArgumentException("Step " + (i + 1) + " \"" + splitCommands[i] + "\": " + e.getMessage(), e);
+      }
+    }
+
+    return steps;
+  }
+
+  private static AutoStep parseStep(String splitCommand)
+  {
+    if (splitCommand.isEmpty()) {throw new IllegalArgumentException("empty step");}
+
+    final char type = splitCommand.charAt(0);
+    return switch (type)
+    {
+      case 'g' ->
+      {
+        final int seperatorIndex = splitCommand.indexOf(":");
+        final int headingIndex = splitCommand.indexOf(";");
+        if (seperatorIndex < 0) {throw new IllegalArgumentException("expected gX:Y or gX:Y;heading");}
+
+        Translation2d posTarget = new Translation2d
+        (
+          MathUtil.clamp(Double.parseDouble(splitCommand.substring(1, seperatorIndex)), 0.5, (FieldConstants.fieldCentre.getX()) - 0.5), 
+          MathUtil.clamp
+          (
+            Double.parseDouble(splitCommand.substring(seperatorIndex + 1, headingIndex < 0 ? splitCommand.length() : headingIndex)), 
+            0.5, 
+            FieldConstants.fieldWidth - 0.5
+          )
+        );
+
+        final double heading = headingIndex < 0 ? Double.NaN : Double.parseDouble(splitCommand.substring(headingIndex + 1));
+        yield new AutoStep(splitCommand, type, heading, posTarget, null);
+      }
+
+      case 'w', 't' -> new AutoStep(splitCommand, type, Double.parseDouble(splitCommand.substring(1)), null, null);
+
+      case 'r' ->
+      {
+        if (!FieldConstants.hasLineup(splitCommand)) {throw new IllegalArgumentException("no reef lineup named " + splitCommand);}
+        yield new AutoStep(splitCommand, type, Double.NaN, null, FieldConstants.getLineup(splitCommand));
+      }
+
+      case 'c' ->
+      {
+        if (!FieldConstants.hasLineup(splitCommand)) {throw new IllegalArgumentException("no coral station lineup named " + splitCommand);}
+        yield new AutoStep(splitCommand, type, Double.NaN, null, FieldConstants.getLineup(splitCommand));
+      }
+
+      default -> throw new IllegalArgumentException("unknown step type '" + type + "'");
+    };
+  }
+
   /**
    * Splits a string of auto command phrases and gets the path command and robot command associated with each command phrase
-   * @param commandInput The string of commands to split, seperated by commas with no spaces (e.g. "a1,rA1,p,cR3")
-   * @return An array of commands, from the input command phrase string, in the same order
+   * @param commandInput The string of commands to split, seperated by commas (e.g. "g2.5:4;180,ra,w0.5,t10")
+   * @return The commands from the input command phrase string, in the same order
+   * @throws IllegalArgumentException Naming the first step that isn't valid
    */
   public static Command getCommandList(String commandInput, CoralRoller s_Coral, CommandSwerveDrivetrain s_Swerve, Supplier<SwerveDriveState> swerveStateSup)
+    {return buildCommand(parse(commandInput), s_Coral, s_Swerve, swerveStateSup);}
+
+  /**
+   * Builds the command for parsed auto steps; run on the main thread, as commands are composed here </p>
+   * Profiled drives are planned here, from the robot's current pose and then each drive's target, on the current alliance
+   * @param steps Steps from {@link #parse}
+   * @return The commands for each step, in the same order
+   */
+  public static Command buildCommand(List<AutoStep> steps, CoralRoller s_Coral, CommandSwerveDrivetrain s_Swerve, Supplier<SwerveDriveState> swerveStateSup)
   {
-    // Removes all whitespace characters from the single-String command phrases, ensures it's all lowercase, and then splits it into individual strings, which are stored in an array
-    String[] splitCommands = commandInput.replaceAll("//s", "").toLowerCase().split(",");
     // The commands produced to be run
     SequentialCommandGroup commandList = new SequentialCommandGroup();
 
-    // For each command phrase, adds the associated path and then the associated command to the command list
-    for (String splitCommand : splitCommands) 
+    if (stepLog == null) {stepLog = new StringLogEntry(DataLogManager.getLog(), stepLogName);}
+
+    final boolean profiled = SD.PROFILED_LINEUP.getAsBoolean();
+    // Where the robot is expected to be at the start of the next drive
+    Pose2d plannedPose = swerveStateSup.get().Pose;
+
+    // For each step, adds the associated path and then the associated command to the command list
+    for (AutoStep step : steps) 
     {
-      switch (splitCommand.charAt(0)) 
+      commandList.addCommands(Commands.runOnce(() -> stepLog.append(step.phrase())));
+
+      switch (step.type()) 
       {
         case 'g' ->
-				{
-          int seperatorIndex = splitCommand.indexOf(":");
-          
-          Translation2d posTarget = new Translation2d
-          (
-            MathUtil.clamp(Double.parseDouble(splitCommand.substring(1, seperatorIndex)), 0.5, (FieldConstants.fieldCentre.getX()) - 0.5), 
-            MathUtil.clamp(Double.parseDouble(splitCommand.substring(seperatorIndex + 1)), 0.5, FieldConstants.fieldWidth - 0.5)
-          );
+        {
+          final Supplier<Pose2d> targetSup;
+          if (Double.isNaN(step.value()))
+          {
+            // The heading to turn around from is only known when the step starts, as the command may be cached
+            final TurnAroundSup turnAroundSup = new TurnAroundSup(step.position(), plannedPose.getRotation());
+            commandList.addCommands(Commands.runOnce(() -> turnAroundSup.start(swerveStateSup.get().Pose.getRotation())));
+            targetSup = turnAroundSup;
+          }
+          else
+            {targetSup = new AlliancePose2dSup(step.position(), new Rotation2d(Units.degreesToRadians(step.value())));}
 
-          Rotation2d rotationTarget = 
-            splitCommand.contains(";") ? 
-            new Rotation2d(Units.degreesToRadians(Double.parseDouble(splitCommand.substring(splitCommand.indexOf(";"))))) : 
-            swerveStateSup.get().Pose.getRotation().plus(Rotation2d.k180deg);
-          
-          commandList.addCommands(s_Swerve.poseDriveCommand(new AlliancePose2dSup(posTarget, rotationTarget), swerveStateSup));
+          commandList.addCommands(driveCommand(targetSup, plannedPose, profiled, s_Swerve, swerveStateSup));
+          plannedPose = targetSup.get();
         }
 
         case 'w' -> 
-          commandList.addCommands(Commands.waitSeconds(Double.parseDouble(splitCommand.substring(1))));
+          commandList.addCommands(Commands.waitSeconds(step.value()));
 
         case 't' ->
-				{
-          double targetMatchTimeElapsed = Double.parseDouble(splitCommand.substring(1));
+        {
+          double targetMatchTimeElapsed = step.value();
           commandList.addCommands(Commands.waitUntil(() -> Timer.getMatchTime() < (15 - targetMatchTimeElapsed)));
         }
 
         case 'r' ->
+        {
+          AlliancePose2dSup lineupSup = new AlliancePose2dSup(step.lineup());
           commandList.addCommands(
-            s_Swerve.poseDriveCommand(new AlliancePose2dSup(FieldConstants.getLineup(splitCommand)), swerveStateSup),
+            driveCommand(lineupSup, plannedPose, profiled, s_Swerve, swerveStateSup),
             Commands.waitSeconds(0.1),
             s_Coral.setSpeedCommand(Constants.Coral.forwardSpeed).until(s_Coral::getSensor)
           );
+          plannedPose = lineupSup.get();
+        }
 
         case 'c' ->
+        {
+          AlliancePose2dSup lineupSup = new AlliancePose2dSup(step.lineup());
           commandList.addCommands(
-            s_Swerve.poseDriveCommand(new AlliancePose2dSup(FieldConstants.getLineup(splitCommand)), swerveStateSup),
+            driveCommand(lineupSup, plannedPose, profiled, s_Swerve, swerveStateSup),
             Commands.waitUntil(s_Coral::getSensor)
           );
+          plannedPose = lineupSup.get();
+        }
       }
     }
 
+    commandList.addCommands(Commands.runOnce(() -> stepLog.append(stepDoneMarker)));
+
     return commandList.withInterruptBehavior(InterruptionBehavior.kCancelIncoming);
   }
+
+  /**
+   * Returns a drive to the target; profiled along a plan around the fences from the expected start unless the "Profiled Lineups" key is off,
+   * so the two can be compared in sim with the same auto string through the logged step times
+   */
+  private static Command driveCommand
+  (
+    Supplier<Pose2d> targetSup, 
+    Pose2d plannedStart, 
+    boolean profiled, 
+    CommandSwerveDrivetrain s_Swerve, 
+    Supplier<SwerveDriveState> swerveStateSup
+  )
+  {
+    if (!profiled) {return s_Swerve.poseDriveCommand(targetSup, swerveStateSup);}
+
+    final Pose2d target = targetSup.get();
+    return s_Swerve
+      .profiledPoseDriveCommand(targetSup, swerveStateSup)
+      .withNavigation()
+      .withPlan
+      (
+        new PoseProfile().plan
+        (
+          plannedStart, 
+          0, 
+          0, 
+          0, 
+          NavigationPlanner.forAlliance().findPath(plannedStart.getTranslation(), target.getTranslation()), 
+          target
+        )
+      );
+  }
+
+  /**
+   * Target of a g step without a heading: the step's position, facing away from the robot's heading when the step starts.
+   * Until then it assumes the heading the robot was planned to have, so the drive can be planned ahead and replans if it differs
+   */
+  private static class TurnAroundSup implements Supplier<Pose2d>
+  {
+    private final Translation2d position;
+    private Pose2d target;
+
+    /**
+     * @param bluePosition Blue-side target position
+     * @param plannedHeading Field heading the robot is expected to have when the step starts
+     */
+    TurnAroundSup(Translation2d bluePosition, Rotation2d plannedHeading)
+    {
+      position = new AlliancePose2dSup(bluePosition, Rotation2d.kZero).get().getTranslation();
+      target = new Pose2d(position, plannedHeading.plus(Rotation2d.k180deg));
+    }
+
+    /** Turns the target around from the robot's field heading; run as the step starts */
+    void start(Rotation2d heading)
+      {target = new Pose2d(position, heading.plus(Rotation2d.k180deg));}
+
+    @Override
+    public Pose2d get()
+      {return target;}
+  }
 }
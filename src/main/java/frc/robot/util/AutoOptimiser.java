@@ -0,0 +1,246 @@
+package frc.robot.util;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.IntStream;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import frc.robot.constants.Constants;
+import frc.robot.constants.FieldConstants;
+
+/**
+ * Finds the order of reef lineups, and the coral station visited between each, that scores the most in auto, fastest </p>
+ * Drive times come from the {@link PoseProfile} the profiled drives follow, around the fences from rest to rest, plus the scoring and intake times
+ * measured in sim. The robot starts holding one coral, so each target after the first is preceded by a station visit. Each choice
+ * of first target is searched in parallel, depth-first, and the best result found so far is shared to prune every branch;
+ * ties are broken by order, so the result is the same every run. </p>
+ * Run offline with {@code ./gradlew optimiseAuto --args="<targets> <stations>"}, e.g. {@code "ra,rb,rc,rd cl1,cr1"}
+ */
+public final class AutoOptimiser
+{
+  /**
+   * An optimised auto
+   * @param autoString Auto string for the order, empty if no target can be scored in time
+   * @param scored Number of targets scored
+   * @param time Estimated time to score them, seconds
+   * @param complete False if the time limit stopped the search, so a better order may exist
+   */
+  public static record Result(String autoString, int scored, double time, boolean complete) {}
+
+  /** Best order found so far, shared between the searching threads */
+  private static record Best(int scored, double time, int[] order) {}
+
+  private final String[] targets;
+  private final String[] stations;
+  /** Time to drive from the start to each target and score, seconds */
+  private final double[] startCost;
+  /** Time from scoring at one target to scoring at another, through the best station, seconds */
+  private final double[][] cycleCost;
+  /** Index of the best station between two targets */
+  private final int[][] cycleStation;
+  /** For each target, the other targets ordered by cycle cost, so cheaper branches are searched first */
+  private final int[][] nextTargets;
+  private final double minCycleCost;
+
+  private final AtomicReference<Best> best = new AtomicReference<Best>(new Best(0, Double.POSITIVE_INFINITY, new int[0]));
+  private final long deadline;
+  private volatile boolean timedOut = false;
+
+  private AutoOptimiser(Pose2d start, String[] targets, String[] stations)
+  {
+    this.targets = targets;
+    this.stations = stations;
+
+    final int n = targets.length;
+    final Pose2d[] targetPoses = new Pose2d[n];
+    final Pose2d[] stationPoses = new Pose2d[stations.length];
+    for (int i = 0; i < n; i++) {targetPoses[i] = FieldConstants.getLineup(targets[i]);}
+    for (int s = 0; s < stations.length; s++) {stationPoses[s] = FieldConstants.getLineup(stations[s]);}
+
+    // Drive times to and from each station, shared by every pair of targets
+    final double[][] toStation = new double[n][stations.length];
+    final double[][] fromStation = new double[stations.length][n];
+    for (int i = 0; i < n; i++)
+    {
+      for (int s = 0; s < stations.length; s++)
+      {
+        toStation[i][s] = driveTime(targetPoses[i], stationPoses[s]);
+        fromStation[s][i] = driveTime(stationPoses[s], targetPoses[i]);
+      }
+    }
+
+    startCost = new double[n];
+    cycleCost = new double[n][n];
+    cycleStation = new int[n][n];
+    double minCycle = Double.POSITIVE_INFINITY;
+
+    for (int i = 0; i < n; i++)
+    {
+      startCost[i] = driveTime(start, targetPoses[i]) + Constants.Auto.scoreTime;
+
+      for (int j = 0; j < n; j++)
+      {
+        cycleCost[i][j] = Double.POSITIVE_INFINITY;
+        for (int s = 0; s < stations.length; s++)
+        {
+          final double cost = toStation[i][s] + Constants.Auto.intakeTime + fromStation[s][j] + Constants.Auto.scoreTime;
+          if (cost < cycleCost[i][j])
+          {
+            cycleCost[i][j] = cost;
+            cycleStation[i][j] = s;
+          }
+        }
+        if (i != j) {minCycle = Math.min(minCycle, cycleCost[i][j]);}
+      }
+    }
+    minCycleCost = minCycle;
+
+    nextTargets = new int[n][];
+    for (int i = 0; i < n; i++)
+    {
+      final int from = i;
+      nextTargets[i] = IntStream.range(0, n)
+        .filter(j -> j != from)
+        .boxed()
+        .sorted((a, b) -> Double.compare(cycleCost[from][a], cycleCost[from][b]))
+        .mapToInt(Integer::intValue)
+        .toArray();
+    }
+
+    deadline = System.nanoTime() + (long)(Constants.Auto.optimiserTimeLimit * 1e9);
+  }
+
+  /**
+   * Finds the auto that scores the most of the targets within the auto period, in the least time
+   * @param start Blue-side starting pose
+   * @param targets Reef lineup names to choose from, e.g. "ra"
+   * @param stations Coral station lineup names to choose from, e.g. "cl1"; if empty only the preloaded coral is scored
+   * @return The best auto found
+   * @throws IllegalArgumentException If a name isn't a reef or coral station lineup, or there are more than 31 targets
+   */
+  public static Result optimise(Pose2d start, List<String> targets, List<String> stations)
+  {
+    for (String target : targets)
+    {
+      if (target.charAt(0) != 'r' || !FieldConstants.hasLineup(target)) {throw new IllegalArgumentException("no reef lineup named " + target);}
+    }
+    for (String station : stations)
+    {
+      if (station.charAt(0) != 'c' || !FieldConstants.hasLineup(station)) {throw new IllegalArgumentException("no coral station lineup named " + station);}
+    }
+    // Visited targets are tracked as bits of an int
+    if (targets.size() > 31) {throw new IllegalArgumentException("too many targets, at most 31");}
+
+    return new AutoOptimiser(start, targets.toArray(String[]::new), stations.toArray(String[]::new)).search();
+  }
+
+  /**
+   * Parses a comma separated list of lineup names, ignoring whitespace, case and empty entries
+   * @param names List of names, e.g. "ra, rB,rc"
+   */
+  public static List<String> parseNames(String names)
+    {return Arrays.stream(AutoFactories.normalise(names).split(",")).filter(name -> !name.isEmpty()).toList();}
+
+  private Result search()
+  {
+    IntStream.range(0, targets.length).parallel().forEach
+    (
+      first ->
+      {
+        if (startCost[first] > Constants.Auto.duration) {return;}
+
+        final int[] order = new int[targets.length];
+        order[0] = first;
+        searchFrom(first, 1 << first, startCost[first], 1, order);
+      }
+    );
+
+    final Best result = best.get();
+    if (result.scored() == 0) {return new Result("", 0, 0, !timedOut);}
+
+    StringBuilder autoString = new StringBuilder(targets[result.order()[0]]);
+    for (int k = 1; k < result.scored(); k++)
+    {
+      autoString
+        .append(',').append(stations[cycleStation[result.order()[k - 1]][result.order()[k]]])
+        .append(',').append(targets[result.order()[k]]);
+    }
+    return new Result(autoString.toString(), result.scored(), result.time(), !timedOut);
+  }
+
+  /** Depth-first search of every order extending the first scored targets in order */
+  private void searchFrom(int last, int visited, double time, int scored, int[] order)
+  {
+    offer(scored, time, order);
+
+    if (scored == targets.length || stations.length == 0) {return;}
+    if (timedOut || System.nanoTime() > deadline)
+    {
+      timedOut = true;
+      return;
+    }
+
+    // At most this many more targets fit in the remaining time, each taking at least the cheapest cycle
+    final int reachable = (int)Math.min(targets.length - scored, Math.floor((Constants.Auto.duration - time) / minCycleCost));
+    final Best current = best.get();
+    if (scored + reachable < current.scored()) {return;}
+    // Ties are kept, as they're broken by order
+    if (scored + reachable == current.scored() && time + (current.scored() - scored) * minCycleCost > current.time()) {return;}
+
+    for (int next : nextTargets[last])
+    {
+      if ((visited & (1 << next)) != 0) {continue;}
+
+      final double nextTime = time + cycleCost[last][next];
+      if (nextTime > Constants.Auto.duration) {continue;}
+
+      order[scored] = next;
+      searchFrom(next, visited | (1 << next), nextTime, scored + 1, order);
+    }
+  }
+
+  /** 
+   * Replaces the shared best if this order scores more, or the same in less time. 
+   * Equal times go to the order with the lower target indices first, so the result doesn't depend on which thread finds it first
+   */
+  private void offer(int scored, double time, int[] order)
+  {
+    Best current = best.get();
+    while 
+    (
+      scored > current.scored() || 
+      (scored == current.scored() && time < current.time()) ||
+      (scored == current.scored() && time == current.time() && Arrays.compare(order, 0, scored, current.order(), 0, scored) < 0)
+    )
+    {
+      if (best.compareAndSet(current, new Best(scored, time, Arrays.copyOf(order, scored)))) {return;}
+      current = best.get();
+    }
+  }
+
+  /** Returns the time to drive between the blue-side poses along the planned path, from rest to rest */
+  private static double driveTime(Pose2d from, Pose2d to)
+  {
+    return new PoseProfile()
+      .plan(from, 0, 0, 0, NavigationPlanner.get(AllianceService.blueIndex).findPath(from.getTranslation(), to.getTranslation()), to)
+      .getTotalTime();
+  }
+
+  public static void main(String... args)
+  {
+    if (args.length < 1 || args.length > 2)
+    {
+      System.err.println("Usage: AutoOptimiser <targets, e.g. ra,rb,rc> [stations, e.g. cl1,cr1]");
+      System.exit(1);
+    }
+
+    final long startTime = System.nanoTime();
+    final Result result = optimise(FieldConstants.blueStartLine, parseNames(args[0]), args.length > 1 ? parseNames(args[1]) : List.of());
+    final double elapsed = (System.nanoTime() - startTime) / 1e6;
+
+    System.out.println("Auto string: " + result.autoString());
+    System.out.printf("Scored %d in %.2fs%s%n", result.scored(), result.time(), result.complete() ? "" : " (time limit reached, may not be optimal)");
+    System.out.printf("Search took %.1fms%n", elapsed);
+  }
+}
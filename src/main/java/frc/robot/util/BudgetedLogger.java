@@ -0,0 +1,86 @@
+package frc.robot.util;
+
+import edu.wpi.first.epilogue.Epilogue;
+import edu.wpi.first.epilogue.Logged.Importance;
+import edu.wpi.first.networktables.DoublePublisher;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.StringPublisher;
+
+import static frc.robot.constants.Constants.Logging.*;
+
+/**
+ * Runs Epilogue logging within a per-loop time budget </p>
+ * Fields are sampled by importance: CRITICAL every loop, INFO and DEBUG every {@code infoPeriod} and {@code debugPeriod} loops.
+ * Each loop logs down to the lowest importance that is due and whose estimated cost fits the budget; tiers that don't fit
+ * are deferred to later loops, up to {@code maxDeferral} loops, after which they are logged regardless.
+ * Set a field or class's importance with {@code @Logged(importance = ...)}; unannotated fields are DEBUG. </p>
+ * Rates are per tier rather than per field, as Epilogue's generated loggers can only be filtered at run time by
+ * {@code minimumImportance}; a field's rate is chosen by giving it the importance of the tier with that period.
+ */
+public class BudgetedLogger
+{
+  /** Importance tiers, highest first; a pass at tier i logs everything in tiers 0..i */
+  private static final Importance[] tiers = {Importance.CRITICAL, Importance.INFO, Importance.DEBUG};
+
+  private final Runnable update;
+  private final int[] periods = {1, infoPeriod, debugPeriod};
+  private final int[] loopsSinceLogged = new int[tiers.length];
+  /** Smoothed cost of a pass down to each tier, seconds */
+  private final double[] costEstimates = new double[tiers.length];
+
+  private final DoublePublisher timePub;
+  private final DoublePublisher deferredPub;
+  private final StringPublisher levelPub;
+
+  /**
+   * Creates a new BudgetedLogger
+   * @param update Runs the Epilogue update for the root object, e.g. {@code () -> Epilogue.update(this)}
+   */
+  public BudgetedLogger(Runnable update)
+  {
+    this.update = update;
+
+    NetworkTable table = NetworkTableInstance.getDefault().getTable("Logging");
+    timePub     = table.getDoubleTopic("Time").publish();
+    deferredPub = table.getDoubleTopic("Deferred").publish();
+    levelPub    = table.getStringTopic("Level").publish();
+  }
+
+  /** Logs whichever tiers are due and fit the budget; to be called once per loop */
+  public void update()
+  {
+    for (int i = 0; i < tiers.length; i++) {loopsSinceLogged[i]++;}
+
+    int level = 0;
+    for (int i = tiers.length - 1; i > 0; i--)
+    {
+      if (loopsSinceLogged[i] < periods[i]) {continue;}
+
+      if (costEstimates[i] <= budget || loopsSinceLogged[i] >= periods[i] + maxDeferral)
+      {
+        level = i;
+        break;
+      }
+    }
+
+    int deferred = 0;
+    for (int i = level + 1; i < tiers.length; i++)
+    {
+      if (loopsSinceLogged[i] >= periods[i]) {deferred++;}
+    }
+
+    Epilogue.getConfig().minimumImportance = tiers[level];
+
+    final long startTime = System.nanoTime();
+    update.run();
+    final double elapsed = (System.nanoTime() - startTime) / 1e9;
+
+    costEstimates[level] = costEstimates[level] == 0 ? elapsed : costEstimates[level] + costSmoothing * (elapsed - costEstimates[level]);
+    for (int i = 0; i <= level; i++) {loopsSinceLogged[i] = 0;}
+
+    timePub.set(elapsed);
+    deferredPub.set(deferred);
+    levelPub.set(tiers[level].name());
+  }
+}
@@ -0,0 +1,107 @@
+package frc.robot.util;
+
+import java.util.EnumMap;
+import java.util.function.Consumer;
+
+import edu.wpi.first.util.datalog.DoubleLogEntry;
+import edu.wpi.first.util.datalog.StringLogEntry;
+import edu.wpi.first.wpilibj.DataLogManager;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import frc.robot.Robot.DriveState;
+import frc.robot.Robot.TargetPosition;
+import frc.robot.subsystems.vision.Vision.TagPOI;
+
+/**
+ * The driver's drive state and target position, changed by events rather than polled </p>
+ * Entering a drive state sets its vision POI and schedules its drive command, cancelling the previous state's command, as a
+ * whileTrue binding would. Nothing runs while the state is unchanged. Every transition is logged, along with its latency:
+ * the time from the transition to the first execute of the new state's command
+ */
+public class DriveStateMachine
+{
+  private final EnumMap<DriveState, Command> driveCommands = new EnumMap<DriveState, Command>(DriveState.class);
+  private final EnumMap<DriveState, TagPOI> pois = new EnumMap<DriveState, TagPOI>(DriveState.class);
+  private final Consumer<TagPOI> poiSetter;
+
+  private DriveState driveState = DriveState.None;
+  private TargetPosition target = TargetPosition.None;
+
+  /* Command whose first execute ends the latest transition, and when the transition happened, microseconds */
+  private Command pendingCommand;
+  private long transitionTime;
+
+  private final StringLogEntry stateLog = new StringLogEntry(DataLogManager.getLog(), "DriveState/State");
+  private final StringLogEntry targetLog = new StringLogEntry(DataLogManager.getLog(), "DriveState/Target");
+  private final DoubleLogEntry latencyLog = new DoubleLogEntry(DataLogManager.getLog(), "DriveState/TransitionLatency", "seconds");
+
+  /**
+   * Creates a new DriveStateMachine, in the None state with no target; the initial state's POI and command aren't applied
+   * @param poiSetter Sets the vision POI on each transition
+   */
+  public DriveStateMachine(Consumer<TagPOI> poiSetter)
+  {
+    this.poiSetter = poiSetter;
+
+    stateLog.append(driveState.name());
+    targetLog.append(target.name());
+    CommandScheduler.getInstance().onCommandExecute(this::onCommandExecute);
+  }
+
+  /**
+   * Sets what entering a drive state does
+   * @param state Drive state
+   * @param poi Vision POI to use in the state
+   * @param driveCommand Command to run while in the state
+   * @return This DriveStateMachine
+   */
+  public DriveStateMachine withState(DriveState state, TagPOI poi, Command driveCommand)
+  {
+    pois.put(state, poi);
+    driveCommands.put(state, driveCommand);
+    return this;
+  }
+
+  /** Changes the drive state, applying the new state if it differs from the current one */
+  public void setDriveState(DriveState newState)
+  {
+    if (newState == driveState) {return;}
+
+    final Command previousCommand = driveCommands.get(driveState);
+    driveState = newState;
+    transitionTime = RobotController.getFPGATime();
+    stateLog.append(newState.name(), transitionTime);
+
+    if (pois.containsKey(newState)) {poiSetter.accept(pois.get(newState));}
+
+    if (previousCommand != null) {previousCommand.cancel();}
+    pendingCommand = driveCommands.get(newState);
+    if (pendingCommand != null) {pendingCommand.schedule();}
+  }
+
+  /** Changes the target position */
+  public void setTarget(TargetPosition newTarget)
+  {
+    if (newTarget == target) {return;}
+
+    target = newTarget;
+    targetLog.append(newTarget.name());
+  }
+
+  public DriveState getDriveState() {return driveState;}
+
+  public TargetPosition getTarget() {return target;}
+
+  /** Returns true if the target and drive state are both current, e.g. for attractor conditions */
+  public boolean isActive(TargetPosition testTarget, DriveState testState)
+    {return target == testTarget && driveState == testState;}
+
+  private void onCommandExecute(Command command)
+  {
+    if (command != pendingCommand) {return;}
+
+    latencyLog.append((RobotController.getFPGATime() - transitionTime) / 1e6);
+    pendingCommand = null;
+  }
+}
@@ -0,0 +1,92 @@
+package frc.robot.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import frc.robot.constants.FieldConstants;
+import frc.robot.util.controlTransmutation.geoFence.Line;
+
+/**
+ * Field queries about the robot's pose, answered once per cycle from the shared drive state </p>
+ * {@link #update} runs at the start of each robot loop, and triggers and commands read the cached answers, so any number of
+ * readers cost one set of lookups. The reef answers start from the robot's reef sector, which holds the nearest face and
+ * the only lineups that can be nearest, so every query is constant time. Answers are for the current alliance's reef
+ */
+public final class FieldQueries
+{
+  /** Indices of the reef lineups in each reef sector, indexed by AllianceService.index() then sector */
+  private static final int[][][] sectorLineups = {sectorLineups(AllianceService.blueIndex), sectorLineups(AllianceService.redIndex)};
+
+  private static Pose2d pose = Pose2d.kZero;
+  private static int reefSector;
+  private static boolean atReefLineup = false;
+  private static Line nearestCoralStation;
+
+  private FieldQueries() {}
+
+  /**
+   * Recalculates every answer for the robot's pose; run once per cycle on the main thread, before the triggers are polled
+   * @param robotPose Current robot pose
+   */
+  public static void update(Pose2d robotPose)
+  {
+    pose = robotPose;
+    final Translation2d position = robotPose.getTranslation();
+    final int alliance = AllianceService.index();
+
+    reefSector = FieldUtils.getReefSector(position);
+
+    // Sector boundaries bisect the gaps between neighbouring faces' lineups, so the nearest lineup is in the robot's sector
+    final Pose2d[] lineups = FieldConstants.allianceReefLineups[alliance];
+    Pose2d nearestLineup = lineups[sectorLineups[alliance][reefSector][0]];
+    double nearestLineupDistance = Double.POSITIVE_INFINITY;
+    for (int index : sectorLineups[alliance][reefSector])
+    {
+      final double distance = position.getDistance(lineups[index].getTranslation());
+      if (distance < nearestLineupDistance)
+      {
+        nearestLineupDistance = distance;
+        nearestLineup = lineups[index];
+      }
+    }
+
+    // Lineups are further apart than the tolerance, so only the nearest can be lined up with
+    atReefLineup = FieldUtils.atPose(robotPose, nearestLineup);
+    nearestCoralStation = FieldUtils.getNearestCoralStation(position);
+  }
+
+  /** Returns the pose from the last update */
+  public static Pose2d getPose() {return pose;}
+
+  /** Returns the position from the last update */
+  public static Translation2d getTranslation() {return pose.getTranslation();}
+
+  /** Returns the reef sector the robot is in, as {@link FieldUtils#getReefSector} */
+  public static int getReefSector() {return reefSector;}
+
+  /** Returns the nearest reef face, as {@link FieldUtils#getNearestReefFace} */
+  public static int getNearestReefFace() {return (int)Conversions.wrap(reefSector, 1, 6);}
+
+  /** Returns true if the robot is within the lineup tolerances of a reef lineup */
+  public static boolean atReefLineup() {return atReefLineup;}
+
+  /** Returns the wall of the nearest coral station, as {@link FieldUtils#getNearestCoralStation} */
+  public static Line getNearestCoralStation() {return nearestCoralStation;}
+
+  /** Groups an alliance's reef lineups by the reef sector they sit in */
+  private static int[][] sectorLineups(int alliance)
+  {
+    final Pose2d[] lineups = FieldConstants.allianceReefLineups[alliance];
+    final int sides = FieldConstants.allianceReefHeadings[alliance].length;
+
+    List<List<Integer>> sectors = new ArrayList<List<Integer>>();
+    for (int sector = 0; sector < sides; sector++) {sectors.add(new ArrayList<Integer>());}
+    for (int i = 0; i < lineups.length; i++) {sectors.get(FieldUtils.getReefSector(alliance, lineups[i].getTranslation())).add(i);}
+
+    int[][] grouped = new int[sides][];
+    for (int sector = 0; sector < sides; sector++) {grouped[sector] = sectors.get(sector).stream().mapToInt(Integer::intValue).toArray();}
+    return grouped;
+  }
+}
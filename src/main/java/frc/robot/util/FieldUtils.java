@@ -1,12 +1,10 @@
 package frc.robot.util;
 import java.util.ArrayList;
-import java.util.Arrays;
 
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Translation2d;
 import edu.wpi.first.wpilibj.DriverStation;
-import edu.wpi.first.wpilibj.DriverStation.Alliance;
 import frc.robot.constants.Constants;
 import frc.robot.constants.FieldConstants;
 import frc.robot.constants.FieldConstants.GeoFencing;
@@ -14,11 +12,9 @@ import frc.robot.util.controlTransmutation.geoFence.Line;
 
 public class FieldUtils 
 {
+  /** Returns the cached alliance from {@link AllianceService} */
   public static boolean isRedAlliance() 
-  {
-    var alliance = DriverStation.getAlliance();
-    return alliance.isPresent() && alliance.get() == Alliance.Red;
-  }
+    {return AllianceService.isRed();}
 
   public static final int getDriverLocation()
   {
@@ -78,18 +74,29 @@ public class FieldUtils
   }
 
   public static int getNearestReefFace(Translation2d robotPos)
+    {return (int)Conversions.wrap(getReefSector(robotPos), 1, 6);}
+
+  /**
+   * Returns the sector of the current alliance's reef the position is in, the index of the nearest reef face midpoint </p>
+   * The reef is a regular polygon, so the nearest midpoint is found from the angle around the centre, without allocating
+   * @param robotPos Field position
+   * @return Sector index, 0 to 5, for the tables indexed by reef sector in FieldConstants
+   */
+  public static int getReefSector(Translation2d robotPos)
+    {return getReefSector(AllianceService.index(), robotPos);}
+
+  /**
+   * Returns the sector of an alliance's reef the position is in, as {@link #getReefSector(Translation2d)}
+   * @param alliance {@link AllianceService#blueIndex} or {@link AllianceService#redIndex}
+   * @param robotPos Field position
+   */
+  public static int getReefSector(int alliance, Translation2d robotPos)
   {
-    int nearestReefFace;
-    ArrayList<Translation2d> localList =
-      isRedAlliance() ? 
-      FieldConstants.redReefMidpoints :
-      FieldConstants.blueReefMidpoints;
-
-    nearestReefFace = localList.indexOf(robotPos.nearest(localList)); 
+    final Translation2d centre = FieldConstants.allianceReefCentres[alliance];
+    final int sides = FieldConstants.allianceReefHeadings[alliance].length;
 
-    nearestReefFace = (int)Conversions.wrap(nearestReefFace, 1, 6);
-    
-    return nearestReefFace;
+    final double angle = Math.atan2(robotPos.getY() - centre.getY(), robotPos.getX() - centre.getX()) - FieldConstants.allianceReefFirstFace[alliance];
+    return Math.floorMod((int)Math.round(angle * sides / (2 * Math.PI)), sides);
   }
 
   public static Line getNearestCoralStation(Translation2d robotPos)
@@ -103,9 +110,6 @@ public class FieldUtils
     northHalf ? GeoFencing.cornerNBlue : GeoFencing.cornerSBlue;
   }
 
-  public static boolean atReefLineUp(Pose2d robotPose)
-    {return Arrays.stream(FieldConstants.reefLineups).anyMatch(lineup -> atPose(robotPose, lineup));}
-
   public static boolean atPose(Pose2d robotPose, Pose2d targetPose)
   {
     
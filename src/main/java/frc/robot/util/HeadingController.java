@@ -0,0 +1,56 @@
+package frc.robot.util;
+
+import edu.wpi.first.math.MathUtil;
+
+/**
+ * Profiled heading control, for holding and turning to a field heading </p>
+ * The commanded angular velocity is the fastest from which the robot can still stop at the target at the maximum angular
+ * acceleration, so a turn cruises and brakes along a profile instead of decaying on a saturated P loop. Close to the target
+ * a proportional gain takes over, and each change in output is limited to the maximum acceleration. Nothing is allocated
+ */
+public class HeadingController
+{
+  private final double kP;
+  private final double maxVelocity;
+  private final double maxAcceleration;
+
+  /** Last output, radians per second */
+  private double output;
+
+  /**
+   * Creates a new HeadingController
+   * @param kP Radians per second per radian of error, close to the target
+   * @param maxVelocity Radians per second
+   * @param maxAcceleration Radians per second squared
+   */
+  public HeadingController(double kP, double maxVelocity, double maxAcceleration)
+  {
+    this.kP = kP;
+    this.maxVelocity = maxVelocity;
+    this.maxAcceleration = maxAcceleration;
+  }
+
+  /**
+   * Restarts the acceleration limit from the measured angular velocity
+   * @param angularVelocity Radians per second
+   */
+  public void reset(double angularVelocity)
+    {output = angularVelocity;}
+
+  /**
+   * Returns the angular velocity to turn towards the target heading, the short way round
+   * @param heading Current heading, radians
+   * @param target Target heading, radians
+   * @param dt Time since the last calculation, seconds
+   * @return Angular velocity, radians per second
+   */
+  public double calculate(double heading, double target, double dt)
+  {
+    final double error = MathUtil.angleModulus(target - heading);
+    final double speed = Math.min(maxVelocity, Math.min(kP * Math.abs(error), Math.sqrt(2 * maxAcceleration * Math.abs(error))));
+
+    final double step = maxAcceleration * dt;
+    output = MathUtil.clamp(Math.copySign(speed, error), output - step, output + step);
+    return output;
+  }
+}
@@ -0,0 +1,210 @@
+package frc.robot.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+
+import edu.wpi.first.networktables.DoublePublisher;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.util.datalog.DoubleLogEntry;
+import edu.wpi.first.wpilibj.DataLogManager;
+import edu.wpi.first.wpilibj2.command.Command;
+
+import static frc.robot.constants.Constants.Profiler.*;
+
+/**
+ * Records how long each part of the robot loop takes, as fixed-bucket histograms </p>
+ * Sections are timed with {@link Section#start()} and {@link Section#stop()}, which do nothing while profiling is disabled.
+ * Every publish period, the p50, p99, max and mean of each section are published under Profiler/ (and so logged with NT),
+ * and the histograms are cleared. Loop period and time are logged to the DataLog on every loop, whether or not profiling
+ * is enabled, so match logs always have them for the log analyser.
+ */
+public class LoopProfiler
+{
+  private static final long bucketWidthNanos = (long)(bucketWidth * 1e9);
+  private static final long publishPeriodNanos = (long)(publishPeriod * 1e9);
+
+  private static volatile boolean enabled = false;
+
+  private static final ArrayList<Section> sections = new ArrayList<Section>();
+  private static final HashMap<String, Section> sectionsByName = new HashMap<String, Section>();
+  /** Section of each command instance seen, so executes don't look up the name; instances of the same name share a section */
+  private static final IdentityHashMap<Command, Section> commandSections = new IdentityHashMap<Command, Section>();
+  private static final NetworkTable table = NetworkTableInstance.getDefault().getTable("Profiler");
+
+  private static long loopStartTime = 0;
+  private static long lastPublishTime = 0;
+  private static long commandMarkTime = 0;
+
+  private static DoubleLogEntry loopPeriodLog;
+  private static DoubleLogEntry loopTimeLog;
+
+  /** Single timed part of the loop, with its own histogram */
+  public static class Section
+  {
+    private final int[] buckets = new int[bucketCount + 1];
+    private int count = 0;
+    private long totalNanos = 0;
+    private long maxNanos = 0;
+    private long startTime = 0;
+
+    private final DoublePublisher p50Pub;
+    private final DoublePublisher p99Pub;
+    private final DoublePublisher maxPub;
+    private final DoublePublisher meanPub;
+
+    private Section(String name)
+    {
+      NetworkTable sectionTable = table.getSubTable(name);
+      p50Pub  = sectionTable.getDoubleTopic("P50").publish();
+      p99Pub  = sectionTable.getDoubleTopic("P99").publish();
+      maxPub  = sectionTable.getDoubleTopic("Max").publish();
+      meanPub = sectionTable.getDoubleTopic("Mean").publish();
+    }
+
+    /** Marks the start of the timed section */
+    public void start()
+    {
+      if (enabled) {startTime = System.nanoTime();}
+    }
+
+    /** Marks the end of the timed section, and records its duration */
+    public void stop()
+    {
+      if (enabled && startTime != 0)
+      {
+        record(System.nanoTime() - startTime);
+        startTime = 0;
+      }
+    }
+
+    private void record(long nanos)
+    {
+      buckets[(int)Math.min(nanos / bucketWidthNanos, bucketCount)]++;
+      count++;
+      totalNanos += nanos;
+      maxNanos = Math.max(maxNanos, nanos);
+    }
+
+    /** Publishes the statistics since the last publish, then clears them */
+    private void publish()
+    {
+      if (count == 0) {return;}
+
+      p50Pub.set(percentile(0.5));
+      p99Pub.set(percentile(0.99));
+      maxPub.set(maxNanos / 1e9);
+      meanPub.set(totalNanos / 1e9 / count);
+
+      for (int i = 0; i < buckets.length; i++) {buckets[i] = 0;}
+      count = 0;
+      totalNanos = 0;
+      maxNanos = 0;
+    }
+
+    /**
+     * Finds the upper edge of the bucket holding the given fraction of samples
+     * @return Duration, seconds; the max if the sample is in the overflow bucket
+     */
+    private double percentile(double fraction)
+    {
+      final int target = (int)Math.ceil(count * fraction);
+      int cumulative = 0;
+
+      for (int i = 0; i < bucketCount; i++)
+      {
+        cumulative += buckets[i];
+        if (cumulative >= target) {return (i + 1) * bucketWidthNanos / 1e9;}
+      }
+      return maxNanos / 1e9;
+    }
+  }
+
+  /**
+   * Returns the section with the given name, creating it if needed </p>
+   * Each section should only be timed from one thread. Sections timed off the main thread are published from the main thread 
+   * without locking, so their statistics can be off by a sample around each publish
+   * @param name Section name, published as Profiler/name
+   */
+  public static synchronized Section section(String name)
+  {
+    return sectionsByName.computeIfAbsent
+    (
+      name,
+      key ->
+      {
+        Section section = new Section(key);
+        sections.add(section);
+        return section;
+      }
+    );
+  }
+
+  /** Enables or disables the section histograms; while disabled, timing calls return immediately */
+  public static void setEnabled(boolean enable) {enabled = enable;}
+
+  public static boolean isEnabled() {return enabled;}
+
+  /** Marks the start of a robot loop, to be called first in robotPeriodic. The loop period is logged even while disabled */
+  public static void startLoop()
+  {
+    if (loopPeriodLog == null)
+    {
+      loopPeriodLog = new DoubleLogEntry(DataLogManager.getLog(), "Profiler/LoopPeriod", "seconds");
+      loopTimeLog   = new DoubleLogEntry(DataLogManager.getLog(), "Profiler/LoopTime", "seconds");
+    }
+
+    final long now = System.nanoTime();
+    if (loopStartTime != 0) {loopPeriodLog.append((now - loopStartTime) / 1e9);}
+    loopStartTime = now;
+  }
+
+  /**
+   * Marks the end of a robot loop, to be called last in robotPeriodic. The loop time is logged even while disabled; while 
+   * enabled, the sections are published every publish period
+   */
+  public static void endLoop()
+  {
+    final long now = System.nanoTime();
+    loopTimeLog.append((now - loopStartTime) / 1e9);
+
+    if (enabled && now - lastPublishTime >= publishPeriodNanos)
+    {
+      lastPublishTime = now;
+      synchronized (LoopProfiler.class)
+      {
+        for (int i = 0; i < sections.size(); i++) {sections.get(i).publish();}
+      }
+    }
+  }
+
+  /**
+   * Marks the point at which the scheduler starts running commands </p>
+   * Bind this as the last action on the button loop, so it runs after all triggers are polled
+   */
+  public static void markCommandsStart()
+  {
+    if (enabled) {commandMarkTime = System.nanoTime();}
+  }
+
+  /**
+   * Records the time since the previous mark against the given command </p>
+   * Intended for {@link edu.wpi.first.wpilibj2.command.CommandScheduler#onCommandExecute}, which runs after each execute,
+   * so each command is charged with its execute and the previous command's isFinished
+   */
+  public static void markCommandExecuted(Command command)
+  {
+    if (!enabled || commandMarkTime == 0) {return;}
+
+    final long now = System.nanoTime();
+    Section section = commandSections.get(command);
+    if (section == null)
+    {
+      section = section("Commands/" + command.getName());
+      commandSections.put(command, section);
+    }
+    section.record(now - commandMarkTime);
+    commandMarkTime = now;
+  }
+}
@@ -0,0 +1,310 @@
+package frc.robot.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import edu.wpi.first.math.geometry.Translation2d;
+import frc.robot.constants.FieldConstants;
+import frc.robot.constants.FieldConstants.GeoFencing;
+import frc.robot.util.controlTransmutation.FieldObject;
+import frc.robot.util.controlTransmutation.GeoFence;
+import frc.robot.util.controlTransmutation.ObjectList;
+
+/**
+ * Shortest collision-free paths around the GeoFencing objects, from a visibility graph </p>
+ * Each fence's keep-out region, inflated by the circumscribed robot radius, is a convex polygon; the graph joins every pair of
+ * polygon corners that can see each other, and is built once per alliance. A query joins the start and goal to the corners
+ * they can see and runs A* over the result. Obstacles containing the start or goal, such as the station walls at a station
+ * lineup, are ignored for that query, so lineups just inside an inflated fence can still be reached.
+ */
+public class NavigationPlanner
+{
+  /** Tolerance for points on an obstacle's edge, which count as outside it, metres */
+  private static final double epsilon = 1e-6;
+
+  private static final NavigationPlanner[] planners = new NavigationPlanner[2];
+
+  /* Obstacle edges as half-planes: a point is inside an obstacle if normal . point < offset for every edge */
+  private final double[][] normalX;
+  private final double[][] normalY;
+  private final double[][] offset;
+
+  /* Graph nodes are obstacle corners inside the field, and edges join each pair that can see each other */
+  private final double[] nodeX;
+  private final double[] nodeY;
+  private final int[][] neighbours;
+
+  /**
+   * Returns the planner for an alliance, building it on first use
+   * @param allianceIndex {@link AllianceService#blueIndex} or {@link AllianceService#redIndex}
+   */
+  public static synchronized NavigationPlanner get(int allianceIndex)
+  {
+    if (planners[allianceIndex] == null)
+    {
+      planners[allianceIndex] = new NavigationPlanner
+      (
+        allianceIndex == AllianceService.redIndex ? GeoFencing.fieldRedGeoFence : GeoFencing.fieldBlueGeoFence,
+        GeoFencing.robotRadiusCircumscribed
+      );
+    }
+    return planners[allianceIndex];
+  }
+
+  /** Returns the planner for the current alliance */
+  public static NavigationPlanner forAlliance()
+    {return get(AllianceService.index());}
+
+  /**
+   * Builds the visibility graph for a set of fences
+   * @param fences Fences to plan around, nested lists included; fences without a keep-out region, like the field wall, are skipped
+   * @param inflation Distance to keep the robot centre from each fence, metres
+   */
+  public NavigationPlanner(ObjectList fences, double inflation)
+  {
+    List<Translation2d[]> obstacles = new ArrayList<Translation2d[]>();
+    addKeepOuts(fences, inflation, obstacles);
+
+    final int obstacleCount = obstacles.size();
+    normalX = new double[obstacleCount][];
+    normalY = new double[obstacleCount][];
+    offset = new double[obstacleCount][];
+
+    for (int o = 0; o < obstacleCount; o++)
+    {
+      Translation2d[] vertices = obstacles.get(o);
+      final int n = vertices.length;
+      normalX[o] = new double[n];
+      normalY[o] = new double[n];
+      offset[o] = new double[n];
+
+      for (int i = 0; i < n; i++)
+      {
+        Translation2d a = vertices[i];
+        Translation2d b = vertices[(i + 1) % n];
+        // Outward normal of an anticlockwise edge
+        final double length = a.getDistance(b);
+        normalX[o][i] = (b.getY() - a.getY()) / length;
+        normalY[o][i] = -(b.getX() - a.getX()) / length;
+        offset[o][i] = normalX[o][i] * a.getX() + normalY[o][i] * a.getY();
+      }
+    }
+
+    // Corners the robot centre can reach: inside the field, away from the walls, and not inside another obstacle
+    List<Translation2d> corners = new ArrayList<Translation2d>();
+    for (Translation2d[] vertices : obstacles)
+    {
+      for (Translation2d vertex : vertices)
+      {
+        if
+        (
+          vertex.getX() > inflation && vertex.getX() < FieldConstants.fieldLength - inflation &&
+          vertex.getY() > inflation && vertex.getY() < FieldConstants.fieldWidth - inflation &&
+          containingObstacle(vertex.getX(), vertex.getY()) < 0
+        )
+          {corners.add(vertex);}
+      }
+    }
+
+    final int nodeCount = corners.size();
+    nodeX = new double[nodeCount];
+    nodeY = new double[nodeCount];
+    for (int i = 0; i < nodeCount; i++)
+    {
+      nodeX[i] = corners.get(i).getX();
+      nodeY[i] = corners.get(i).getY();
+    }
+
+    final boolean[] noneIgnored = new boolean[obstacleCount];
+    List<List<Integer>> visible = new ArrayList<List<Integer>>();
+    for (int i = 0; i < nodeCount; i++) {visible.add(new ArrayList<Integer>());}
+
+    for (int i = 0; i < nodeCount; i++)
+    {
+      for (int j = i + 1; j < nodeCount; j++)
+      {
+        if (!blocked(nodeX[i], nodeY[i], nodeX[j], nodeY[j], noneIgnored))
+        {
+          visible.get(i).add(j);
+          visible.get(j).add(i);
+        }
+      }
+    }
+
+    neighbours = new int[nodeCount][];
+    for (int i = 0; i < nodeCount; i++) {neighbours[i] = visible.get(i).stream().mapToInt(Integer::intValue).toArray();}
+  }
+
+  private static void addKeepOuts(ObjectList fences, double inflation, List<Translation2d[]> obstacles)
+  {
+    for (FieldObject object : fences.getObjects())
+    {
+      if (object instanceof ObjectList list) {addKeepOuts(list, inflation, obstacles);}
+      else if (object instanceof GeoFence fence)
+      {
+        Translation2d[] keepOut = fence.getKeepOut(inflation);
+        if (keepOut != null) {obstacles.add(keepOut);}
+      }
+    }
+  }
+
+  /**
+   * Finds the shortest path between two points that keeps the robot clear of the fences
+   * @param start Field position to start from
+   * @param goal Field position to finish at
+   * @return The corners to pass through, in order, excluding the start and goal; empty if the straight line is clear,
+   * or if there is no clear path, in which case the straight line is the best available
+   */
+  public List<Translation2d> findPath(Translation2d start, Translation2d goal)
+  {
+    final double startX = start.getX();
+    final double startY = start.getY();
+    final double goalX = goal.getX();
+    final double goalY = goal.getY();
+
+    final boolean[] ignored = new boolean[offset.length];
+    for (int o = 0; o < offset.length; o++) {ignored[o] = inside(o, startX, startY) || inside(o, goalX, goalY);}
+
+    if (!blocked(startX, startY, goalX, goalY, ignored)) {return List.of();}
+
+    // A* over the corners, from the start (index nodeCount) to the goal (index nodeCount + 1)
+    final int nodeCount = nodeX.length;
+    final int startIndex = nodeCount;
+    final int goalIndex = nodeCount + 1;
+
+    final double[] cost = new double[nodeCount + 2];
+    final double[] estimate = new double[nodeCount + 2];
+    final int[] previous = new int[nodeCount + 2];
+    final boolean[] closed = new boolean[nodeCount + 2];
+    final boolean[] seesGoal = new boolean[nodeCount];
+    Arrays.fill(cost, Double.POSITIVE_INFINITY);
+    Arrays.fill(estimate, Double.POSITIVE_INFINITY);
+    Arrays.fill(previous, -1);
+
+    for (int i = 0; i < nodeCount; i++)
+    {
+      seesGoal[i] = !blocked(nodeX[i], nodeY[i], goalX, goalY, ignored);
+      if (!blocked(startX, startY, nodeX[i], nodeY[i], ignored))
+      {
+        cost[i] = Math.hypot(nodeX[i] - startX, nodeY[i] - startY);
+        estimate[i] = cost[i] + Math.hypot(goalX - nodeX[i], goalY - nodeY[i]);
+        previous[i] = startIndex;
+      }
+    }
+
+    while (true)
+    {
+      // Few enough nodes that a scan is faster than a heap
+      int current = -1;
+      for (int i = 0; i < nodeCount + 2; i++)
+      {
+        if (!closed[i] && estimate[i] < Double.POSITIVE_INFINITY && (current < 0 || estimate[i] < estimate[current])) {current = i;}
+      }
+      if (current < 0) {return List.of();}
+      if (current == goalIndex) {break;}
+      closed[current] = true;
+
+      final double currentX = nodeX[current];
+      final double currentY = nodeY[current];
+
+      if (seesGoal[current])
+        {relax(current, goalIndex, cost[current] + Math.hypot(goalX - currentX, goalY - currentY), 0, cost, estimate, previous);}
+
+      for (int next : neighbours[current])
+      {
+        if (closed[next]) {continue;}
+        relax
+        (
+          current,
+          next,
+          cost[current] + Math.hypot(nodeX[next] - currentX, nodeY[next] - currentY),
+          Math.hypot(goalX - nodeX[next], goalY - nodeY[next]),
+          cost,
+          estimate,
+          previous
+        );
+      }
+    }
+
+    ArrayList<Translation2d> path = new ArrayList<Translation2d>();
+    for (int node = previous[goalIndex]; node != startIndex; node = previous[node]) {path.add(0, new Translation2d(nodeX[node], nodeY[node]));}
+    return path;
+  }
+
+  private static void relax(int from, int to, double newCost, double heuristic, double[] cost, double[] estimate, int[] previous)
+  {
+    if (newCost >= cost[to]) {return;}
+    cost[to] = newCost;
+    estimate[to] = newCost + heuristic;
+    previous[to] = from;
+  }
+
+  /**
+   * Returns how far a point is inside the obstacles, for checking driven paths
+   * @param point Field position of the robot centre
+   * @return Distance from the point to the nearest edge of the deepest obstacle containing it, metres; 0 if it is clear
+   */
+  public double getPenetration(Translation2d point)
+  {
+    final double x = point.getX();
+    final double y = point.getY();
+
+    double deepest = 0;
+    for (int o = 0; o < offset.length; o++)
+    {
+      double depth = Double.POSITIVE_INFINITY;
+      for (int i = 0; i < offset[o].length; i++) {depth = Math.min(depth, offset[o][i] - normalX[o][i] * x - normalY[o][i] * y);}
+      deepest = Math.max(deepest, depth);
+    }
+    return deepest;
+  }
+
+  /** Returns true if the segment passes through the inside of any obstacle that isn't ignored */
+  private boolean blocked(double ax, double ay, double bx, double by, boolean[] ignored)
+  {
+    final double dx = bx - ax;
+    final double dy = by - ay;
+
+    for (int o = 0; o < offset.length; o++)
+    {
+      if (ignored[o]) {continue;}
+
+      // Clips the segment to each edge's half-plane; anything left is inside the obstacle
+      double enter = 0;
+      double exit = 1;
+      for (int i = 0; i < offset[o].length && enter < exit; i++)
+      {
+        final double start = normalX[o][i] * ax + normalY[o][i] * ay - offset[o][i] + epsilon;
+        final double along = normalX[o][i] * dx + normalY[o][i] * dy;
+
+        if (along == 0)
+        {
+          if (start >= 0) {exit = enter;}
+        }
+        else if (along > 0) {exit = Math.min(exit, -start / along);}
+        else {enter = Math.max(enter, -start / along);}
+      }
+
+      if (enter < exit) {return true;}
+    }
+    return false;
+  }
+
+  /** Returns true if the point is strictly inside the obstacle */
+  private boolean inside(int obstacle, double x, double y)
+  {
+    for (int i = 0; i < offset[obstacle].length; i++)
+    {
+      if (normalX[obstacle][i] * x + normalY[obstacle][i] * y - offset[obstacle][i] > -epsilon) {return false;}
+    }
+    return true;
+  }
+
+  /** Returns the index of an obstacle strictly containing the point, or -1 */
+  private int containingObstacle(double x, double y)
+  {
+    for (int o = 0; o < offset.length; o++) {if (inside(o, x, y)) {return o;}}
+    return -1;
+  }
+}
@@ -0,0 +1,269 @@
+package frc.robot.util;
+
+import java.util.List;
+import java.util.function.DoubleFunction;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.trajectory.TrapezoidProfile;
+
+import static frc.robot.constants.Constants.Swerve.*;
+
+/**
+ * Time-parameterised path between two poses, straight or through waypoints </p>
+ * Trapezoidal profiles set the distance along the path and the heading. The quicker one has its constraints scaled down so
+ * translation and rotation arrive together. Plan once with {@link #plan}, then {@link #sample} the setpoint at any time since the start
+ */
+public class PoseProfile
+{
+  /** Profiles shorter than this are not time-scaled, seconds */
+  private static final double minimumProfileTime = 1e-3;
+  /** Smallest constraint scale searched when time-scaling */
+  private static final double minimumScale = 1e-6;
+  /** Bisection steps when finding a time scale, enough to bring the scale within a millionth of the exact one */
+  private static final int scaleIterations = 24;
+
+  private Pose2d start;
+  private Pose2d target;
+
+  private TrapezoidProfile translationProfile;
+  private TrapezoidProfile rotationProfile;
+  private final TrapezoidProfile.State translationStart = new TrapezoidProfile.State();
+  private final TrapezoidProfile.State translationGoal = new TrapezoidProfile.State();
+  private final TrapezoidProfile.State rotationStart = new TrapezoidProfile.State();
+  private final TrapezoidProfile.State rotationGoal = new TrapezoidProfile.State();
+  /* Path corners, from the start to the target, and the distance along the path to each */
+  private double[] pathX;
+  private double[] pathY;
+  private double[] pathDistance;
+  private double totalTime;
+
+  /* Setpoint from the last sample */
+  private double setpointX;
+  private double setpointY;
+  private double setpointHeading;
+  private double velocityX;
+  private double velocityY;
+  private double angularVelocity;
+
+  /**
+   * Plans the profiles along a straight line from a starting pose and field relative velocity to a target at rest
+   * @param start Starting field pose
+   * @param fieldVX Starting field X velocity, metres per second
+   * @param fieldVY Starting field Y velocity, metres per second
+   * @param omega Starting angular velocity, radians per second
+   * @param target Field pose to finish at
+   * @return This PoseProfile, planned
+   */
+  public PoseProfile plan(Pose2d start, double fieldVX, double fieldVY, double omega, Pose2d target)
+    {return plan(start, fieldVX, fieldVY, omega, List.of(), target);}
+
+  /**
+   * Plans the profiles along straight lines through waypoints, from a starting pose and field relative velocity to a target at rest </p>
+   * The distance profile doesn't slow for the corners, so the robot cuts them slightly
+   * @param start Starting field pose
+   * @param fieldVX Starting field X velocity, metres per second
+   * @param fieldVY Starting field Y velocity, metres per second
+   * @param omega Starting angular velocity, radians per second
+   * @param waypoints Field positions to pass through, in order, e.g. from {@link NavigationPlanner#findPath}
+   * @param target Field pose to finish at
+   * @return This PoseProfile, planned
+   */
+  public PoseProfile plan(Pose2d start, double fieldVX, double fieldVY, double omega, List<Translation2d> waypoints, Pose2d target)
+  {
+    this.start = start;
+    this.target = target;
+
+    final int points = waypoints.size() + 2;
+    pathX = new double[points];
+    pathY = new double[points];
+    pathDistance = new double[points];
+
+    pathX[0] = start.getX();
+    pathY[0] = start.getY();
+    for (int i = 0; i < waypoints.size(); i++)
+    {
+      pathX[i + 1] = waypoints.get(i).getX();
+      pathY[i + 1] = waypoints.get(i).getY();
+    }
+    pathX[points - 1] = target.getX();
+    pathY[points - 1] = target.getY();
+
+    for (int i = 1; i < points; i++)
+      {pathDistance[i] = pathDistance[i - 1] + Math.hypot(pathX[i] - pathX[i - 1], pathY[i] - pathY[i - 1]);}
+
+    // Starting velocity along the first segment
+    final double firstLength = pathDistance[1];
+    translationStart.position = 0;
+    translationStart.velocity = 
+      firstLength > 1e-6 ? 
+      (fieldVX * (pathX[1] - pathX[0]) + fieldVY * (pathY[1] - pathY[0])) / firstLength : 
+      0;
+    translationGoal.position = pathDistance[points - 1];
+    translationGoal.velocity = 0;
+
+    // Unwrapped so the profile takes the short way round
+    final double startHeading = start.getRotation().getRadians();
+    rotationStart.position = startHeading;
+    rotationStart.velocity = omega;
+    rotationGoal.position = startHeading + MathUtil.angleModulus(target.getRotation().getRadians() - startHeading);
+    rotationGoal.velocity = 0;
+
+    final TrapezoidProfile.Constraints translationConstraints = new TrapezoidProfile.Constraints(profiledMaxSpeed, profiledMaxAcceleration);
+    final TrapezoidProfile.Constraints rotationConstraints = new TrapezoidProfile.Constraints(maxAngularVelocity, profiledMaxAngularAcceleration);
+    final double translationTime = profileTime(translationConstraints, translationStart, translationGoal);
+    final double rotationTime = profileTime(rotationConstraints, rotationStart, rotationGoal);
+    totalTime = Math.max(translationTime, rotationTime);
+
+    // A profile with nothing to do keeps its full constraints, as zero constraints can't be calculated
+    translationProfile = new TrapezoidProfile
+    (
+      translationTime > minimumProfileTime ? 
+      stretchedConstraints(translationConstraints, translationStart, translationGoal, totalTime) : 
+      translationConstraints
+    );
+    rotationProfile = new TrapezoidProfile
+    (
+      rotationTime > minimumProfileTime ? 
+      stretchedConstraints(rotationConstraints, rotationStart, rotationGoal, totalTime) : 
+      rotationConstraints
+    );
+
+    return this;
+  }
+
+  /**
+   * Calculates the setpoint at the given time, read it with the getters
+   * @param time Seconds since the start of the profile
+   */
+  public void sample(double time)
+  {
+    final TrapezoidProfile.State translationSetpoint = translationProfile.calculate(time, translationStart, translationGoal);
+    final TrapezoidProfile.State rotationSetpoint = rotationProfile.calculate(time, rotationStart, rotationGoal);
+
+    // The segment containing the setpoint, skipping any of zero length
+    final double distance = MathUtil.clamp(translationSetpoint.position, 0, translationGoal.position);
+    int segment = 1;
+    while (segment < pathDistance.length - 1 && (pathDistance[segment] < distance || pathDistance[segment] == pathDistance[segment - 1])) 
+      {segment++;}
+
+    final double segmentLength = pathDistance[segment] - pathDistance[segment - 1];
+    final double directionX = segmentLength > 1e-6 ? (pathX[segment] - pathX[segment - 1]) / segmentLength : 0;
+    final double directionY = segmentLength > 1e-6 ? (pathY[segment] - pathY[segment - 1]) / segmentLength : 0;
+    final double alongSegment = distance - pathDistance[segment - 1];
+
+    setpointX = pathX[segment - 1] + directionX * alongSegment;
+    setpointY = pathY[segment - 1] + directionY * alongSegment;
+    setpointHeading = rotationSetpoint.position;
+    velocityX = directionX * translationSetpoint.velocity;
+    velocityY = directionY * translationSetpoint.velocity;
+    angularVelocity = rotationSetpoint.velocity;
+  }
+
+  /**
+   * Slows a profile's constraints so it takes the given time </p>
+   * Scaling the velocity limit by k and the acceleration limit by k squared stretches a profile from rest by exactly 1/k, 
+   * but not one that starts moving, so k is found by bisection. k is kept high enough that the starting velocity isn't clamped to the 
+   * velocity limit, and that a start towards the goal can still stop at it, as the profile would jump its velocity otherwise. 
+   * If that isn't slow enough, the acceleration limit alone is lowered, within the same bound. 
+   * A profile that still can't be slowed enough finishes early
+   * @param constraints Full constraints
+   * @param start Starting state
+   * @param goal Goal state, at rest
+   * @param time Time to take, seconds
+   * @return The slowed constraints, or the full constraints if they already take the time or longer
+   */
+  private static TrapezoidProfile.Constraints stretchedConstraints(TrapezoidProfile.Constraints constraints, TrapezoidProfile.State start, TrapezoidProfile.State goal, double time)
+  {
+    if (profileTime(constraints, start, goal) >= time) {return constraints;}
+
+    // Lowest acceleration that can stop at the goal from the starting velocity, if it's towards the goal
+    final double distance = goal.position - start.position;
+    final double stoppingAcceleration = 
+      start.velocity * distance > 0 ? 
+      start.velocity * start.velocity / (2 * Math.abs(distance)) : 
+      0;
+
+    final double minimumK = MathUtil.clamp
+    (
+      Math.max(Math.abs(start.velocity) / constraints.maxVelocity, Math.sqrt(stoppingAcceleration / constraints.maxAcceleration)),
+      minimumScale, 
+      1
+    );
+    final TrapezoidProfile.Constraints slowest = scaled(constraints, minimumK, minimumK * minimumK);
+    if (profileTime(slowest, start, goal) > time) 
+      {return bisect(k -> scaled(constraints, k, k * k), minimumK, 1, start, goal, time);}
+
+    final double minimumAccelerationScale = Math.max(stoppingAcceleration / constraints.maxAcceleration, minimumScale);
+    final double slowestAccelerationScale = minimumK * minimumK;
+    if (minimumAccelerationScale >= slowestAccelerationScale) {return slowest;}
+
+    final TrapezoidProfile.Constraints slowestAcceleration = scaled(constraints, minimumK, minimumAccelerationScale);
+    if (profileTime(slowestAcceleration, start, goal) <= time) {return slowestAcceleration;}
+
+    return bisect(k -> scaled(constraints, minimumK, k), minimumAccelerationScale, slowestAccelerationScale, start, goal, time);
+  }
+
+  /**
+   * Bisects on geometric midpoints, as scales can be orders of magnitude below 1, 
+   * for the lowest scale whose constraints take no longer than the given time
+   * @param constraints Constraints for a scale
+   * @param low Scale taking longer than the time
+   * @param high Scale taking no longer than the time
+   */
+  private static TrapezoidProfile.Constraints bisect
+  (
+    DoubleFunction<TrapezoidProfile.Constraints> constraints, 
+    double low, 
+    double high, 
+    TrapezoidProfile.State start, 
+    TrapezoidProfile.State goal, 
+    double time
+  )
+  {
+    for (int i = 0; i < scaleIterations; i++)
+    {
+      final double mid = Math.sqrt(low * high);
+      if (profileTime(constraints.apply(mid), start, goal) > time) {low = mid;}
+      else {high = mid;}
+    }
+    return constraints.apply(high);
+  }
+
+  private static TrapezoidProfile.Constraints scaled(TrapezoidProfile.Constraints constraints, double velocityScale, double accelerationScale)
+    {return new TrapezoidProfile.Constraints(constraints.maxVelocity * velocityScale, constraints.maxAcceleration * accelerationScale);}
+
+  /** Returns the time a profile with the given constraints takes to get from the start state to the goal */
+  private static double profileTime(TrapezoidProfile.Constraints constraints, TrapezoidProfile.State start, TrapezoidProfile.State goal)
+  {
+    TrapezoidProfile profile = new TrapezoidProfile(constraints);
+    profile.calculate(0, start, goal);
+    return profile.totalTime();
+  }
+
+  public Pose2d getStart() {return start;}
+
+  public Pose2d getTarget() {return target;}
+
+  /** Returns the duration of the profile, seconds */
+  public double getTotalTime() {return totalTime;}
+
+  /** Returns the field X setpoint from the last sample, metres */
+  public double getX() {return setpointX;}
+
+  /** Returns the field Y setpoint from the last sample, metres */
+  public double getY() {return setpointY;}
+
+  /** Returns the unwrapped heading setpoint from the last sample, radians */
+  public double getHeading() {return setpointHeading;}
+
+  /** Returns the field X velocity from the last sample, metres per second */
+  public double getVelocityX() {return velocityX;}
+
+  /** Returns the field Y velocity from the last sample, metres per second */
+  public double getVelocityY() {return velocityY;}
+
+  /** Returns the angular velocity from the last sample, radians per second */
+  public double getAngularVelocity() {return angularVelocity;}
+}
@@ -4,9 +4,18 @@
 
 package frc.robot.util;
 
+import java.util.EnumSet;
+import java.util.function.BooleanSupplier;
 import java.util.function.Consumer;
+import java.util.function.DoubleSupplier;
 import java.util.function.Supplier;
 
+import edu.wpi.first.networktables.BooleanEntry;
+import edu.wpi.first.networktables.DoubleEntry;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableEvent;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.StringEntry;
 import edu.wpi.first.util.sendable.Sendable;
 import edu.wpi.first.util.sendable.SendableBuilder;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
@@ -16,7 +25,14 @@ import frc.robot.subsystems.CommandSwerveDrivetrain;
 /** Simplified interface for most SmartDashboard interactions */
 public class SD 
 {
+  /** SmartDashboard's table; declared before the keys, as they open their topics on construction */
+  private static final NetworkTable table = NetworkTableInstance.getDefault().getTable("SmartDashboard");
+
   public static final StringKey  AUTO_STRING      = new StringKey("Auto String", "");
+  public static final StringKey  AUTO_ERROR       = new StringKey("Auto Error", "");
+  public static final StringKey  AUTO_TARGETS     = new StringKey("Auto Targets", "");
+  public static final StringKey  AUTO_STATIONS    = new StringKey("Auto Stations", "");
+  public static final BooleanKey AUTO_OPTIMISE    = new BooleanKey("Optimise Auto", false);
 
   public static final DoubleKey  LL_EXPOSURE      = new DoubleKey("Exposure Setting", 0);
   public static final BooleanKey LL_EXPOSURE_UP   = new BooleanKey("Increase Exposure", false);
@@ -25,6 +41,11 @@ public class SD
 
   public static final BooleanKey FENCE_TOGGLE     = new BooleanKey("Enable Fencing", true);
 
+  public static final BooleanKey PROFILER_TOGGLE  = new BooleanKey("Enable Profiling", false);
+
+  public static final BooleanKey PROFILED_LINEUP  = new BooleanKey("Profiled Lineups", true);
+  public static final BooleanKey SETPOINT_LIMITS  = new BooleanKey("Limit Setpoints", false);
+
   public static final StringKey  STATE_HEADING    = new StringKey("Heading State", "");
   public static final StringKey  STATE_DRIVE      = new StringKey("Drive State", "Disabled");
 
@@ -84,13 +105,40 @@ public class SD
     public void init();
   }
 
-  public record BooleanKey (String label, boolean defaultValue) implements Key<Boolean>
+  /** Events that update a key's cached value: the current value on creation, then every local or remote change */
+  private static final EnumSet<NetworkTableEvent.Kind> listenerEvents = EnumSet.of(NetworkTableEvent.Kind.kImmediate, NetworkTableEvent.Kind.kValueAll);
+
+  /**
+   * Boolean SmartDashboard value </p>
+   * The value is cached by an NT listener, so reads are a field read, and puts of an unchanged value are skipped
+   */
+  public static final class BooleanKey implements Key<Boolean>, BooleanSupplier
   {
-    public Boolean get() {return SmartDashboard.getBoolean(label, defaultValue);}
+    private final String label;
+    private final boolean defaultValue;
+    private final BooleanEntry entry;
+    private volatile boolean value;
+
+    public BooleanKey(String label, boolean defaultValue)
+    {
+      this.label = label;
+      this.defaultValue = defaultValue;
+      value = defaultValue;
+      entry = table.getBooleanTopic(label).getEntry(defaultValue);
+      NetworkTableInstance.getDefault().addListener(entry, listenerEvents, event -> value = event.valueData.value.getBoolean());
+    }
+
+    public String label() {return label;}
+
+    public boolean defaultValue() {return defaultValue;}
+
+    public Boolean get() {return value;}
+
+    public boolean getAsBoolean() {return value;}
 
     public boolean button() 
     {
-      if (get()) 
+      if (value) 
       {
         put(false); 
         return true;
@@ -99,26 +147,106 @@ public class SD
         {return false;}
     }
 
-    public void init() {SmartDashboard.putBoolean(label, defaultValue);}
+    public void init() 
+    {
+      value = defaultValue;
+      entry.set(defaultValue);
+    }
 
-    public void put(Boolean value) {SmartDashboard.putBoolean(label, value);}
+    public void put(Boolean newValue) 
+    {
+      if (newValue == value) {return;}
+      value = newValue;
+      entry.set(newValue);
+    }
   }
 
-  public record DoubleKey (String label, double defaultValue) implements Key<Double>
+  /**
+   * Double SmartDashboard value </p>
+   * The value is cached by an NT listener, so reads are a field read, and puts of an unchanged value are skipped
+   */
+  public static final class DoubleKey implements Key<Double>, DoubleSupplier
   {
-    public Double get() {return SmartDashboard.getNumber(label, defaultValue);}
+    private final String label;
+    private final double defaultValue;
+    private final DoubleEntry entry;
+    private volatile double value;
+
+    public DoubleKey(String label, double defaultValue)
+    {
+      this.label = label;
+      this.defaultValue = defaultValue;
+      value = defaultValue;
+      entry = table.getDoubleTopic(label).getEntry(defaultValue);
+      NetworkTableInstance.getDefault().addListener(entry, listenerEvents, event -> value = event.valueData.value.getDouble());
+    }
+
+    public String label() {return label;}
 
-    public void init() {SmartDashboard.putNumber(label, defaultValue);}
+    public double defaultValue() {return defaultValue;}
 
-    public void put(Double value) {SmartDashboard.putNumber(label, value);}
+    public Double get() {return value;}
+
+    public double getAsDouble() {return value;}
+
+    public void init() 
+    {
+      value = defaultValue;
+      entry.set(defaultValue);
+    }
+
+    public void put(Double newValue) 
+    {
+      if (newValue == value) {return;}
+      value = newValue;
+      entry.set(newValue);
+    }
   }
 
-  public record StringKey (String label, String defaultValue) implements Key<String>
+  /**
+   * String SmartDashboard value </p>
+   * The value is cached by an NT listener, so reads are a field read, and puts of an unchanged value are skipped
+   */
+  public static final class StringKey implements Key<String>
   {
-    public String get() {return SmartDashboard.getString(label, defaultValue);}
+    private final String label;
+    private final String defaultValue;
+    private final StringEntry entry;
+    private volatile String value;
+
+    public StringKey(String label, String defaultValue)
+    {
+      this.label = label;
+      this.defaultValue = defaultValue;
+      value = defaultValue;
+      entry = table.getStringTopic(label).getEntry(defaultValue);
+      NetworkTableInstance.getDefault().addListener(entry, listenerEvents, event -> value = event.valueData.value.getString());
+    }
+
+    public String label() {return label;}
+
+    public String defaultValue() {return defaultValue;}
 
-    public void init() {SmartDashboard.putString(label, defaultValue);}
+    public String get() {return value;}
 
-    public void put(String value) {SmartDashboard.putString(label, value);}
+    /**
+     * Adds a listener run on the NT listener thread with the current value, then with every local or remote change
+     * @param listener Consumer of the new value
+     */
+    public void onChange(Consumer<String> listener)
+      {NetworkTableInstance.getDefault().addListener(entry, listenerEvents, event -> listener.accept(event.valueData.value.getString()));}
+
+    public void init() 
+    {
+      value = defaultValue;
+      entry.set(defaultValue);
+    }
+
+    public void put(String newValue) 
+    {
+      if (newValue.equals(value)) {return;}
+      value = newValue;
+      entry.set(newValue);
+    }
   }
 }
@@ -0,0 +1,169 @@
+package frc.robot.util;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+
+import static frc.robot.constants.Constants.Swerve.*;
+
+/**
+ * Limits each change in robot relative chassis speeds to what the modules can follow in one loop </p>
+ * The step from the last setpoint towards the requested speeds keeps its direction, and is scaled down until every module's
+ * velocity change fits its wheel-force budget, its speed gain fits the drive motor's torque at its speed, and its change
+ * of direction fits the steering rate. Modules may reverse rather than turn more than 90 degrees, as CTRE's module
+ * optimisation does the same. Nothing is allocated per cycle
+ */
+public class SwerveSetpointGenerator
+{
+  /** Modules slower than this aren't held to the steering rate, metres per second */
+  private static final double steerSpeedThreshold = 0.05;
+  /** Halvings of the step scale when the torque or steering limits apply */
+  private static final int bisectionSteps = 10;
+
+  private final double[] moduleX;
+  private final double[] moduleY;
+  /** Direction each module is steered to, radians; tracked at the steering rate even while a module is too slow to be limited */
+  private final double[] moduleAngle;
+
+  /* Last setpoint, robot relative */
+  private double vx;
+  private double vy;
+  private double omega;
+
+  /* Step from the last setpoint to the requested speeds, shared by calculate and fits */
+  private double stepX;
+  private double stepY;
+  private double stepOmega;
+
+  /**
+   * Creates a new SwerveSetpointGenerator, at rest with the modules facing forward
+   * @param moduleLocations Module positions relative to the robot centre, metres
+   */
+  public SwerveSetpointGenerator(Translation2d[] moduleLocations)
+  {
+    moduleX = new double[moduleLocations.length];
+    moduleY = new double[moduleLocations.length];
+    moduleAngle = new double[moduleLocations.length];
+
+    for (int i = 0; i < moduleLocations.length; i++)
+    {
+      moduleX[i] = moduleLocations[i].getX();
+      moduleY[i] = moduleLocations[i].getY();
+    }
+  }
+
+  /**
+   * Restarts from the measured state, e.g. after another request has been driving
+   * @param speeds Measured robot relative chassis speeds
+   * @param moduleStates Measured module states, in the same order as the module locations
+   */
+  public void reset(ChassisSpeeds speeds, SwerveModuleState[] moduleStates)
+  {
+    vx = speeds.vxMetersPerSecond;
+    vy = speeds.vyMetersPerSecond;
+    omega = speeds.omegaRadiansPerSecond;
+
+    for (int i = 0; i < moduleAngle.length; i++) {moduleAngle[i] = moduleStates[i].angle.getRadians();}
+  }
+
+  /**
+   * Steps the setpoint towards the requested speeds, read the result with the getters
+   * @param targetVX Requested robot relative X velocity, metres per second
+   * @param targetVY Requested robot relative Y velocity, metres per second
+   * @param targetOmega Requested angular velocity, radians per second
+   * @param dt Time since the last setpoint, seconds
+   */
+  public void calculate(double targetVX, double targetVY, double targetOmega, double dt)
+  {
+    // Desaturated so no module is asked to exceed the maximum speed
+    double fastestModule = 0;
+    for (int i = 0; i < moduleX.length; i++)
+      {fastestModule = Math.max(fastestModule, Math.hypot(targetVX - targetOmega * moduleY[i], targetVY + targetOmega * moduleX[i]));}
+
+    if (fastestModule > maxSpeed)
+    {
+      final double desaturation = maxSpeed / fastestModule;
+      targetVX *= desaturation;
+      targetVY *= desaturation;
+      targetOmega *= desaturation;
+    }
+
+    stepX = targetVX - vx;
+    stepY = targetVY - vy;
+    stepOmega = targetOmega - omega;
+
+    // Each module's velocity change is linear in the scale, so the wheel-force budget gives the scale directly
+    double scale = 1;
+    for (int i = 0; i < moduleX.length; i++)
+    {
+      final double change = Math.hypot(stepX - stepOmega * moduleY[i], stepY + stepOmega * moduleX[i]);
+      if (change * scale > moduleMaxAcceleration * dt) {scale = moduleMaxAcceleration * dt / change;}
+    }
+
+    // The torque and steering limits depend on each module's new velocity, so are found by bisection
+    if (!fits(scale, dt))
+    {
+      double low = 0;
+      double high = scale;
+      for (int k = 0; k < bisectionSteps; k++)
+      {
+        final double mid = (low + high) / 2;
+        if (fits(mid, dt)) {low = mid;}
+        else {high = mid;}
+      }
+      scale = low;
+    }
+
+    vx += stepX * scale;
+    vy += stepY * scale;
+    omega += stepOmega * scale;
+
+    // Modules turn towards their new direction at the steering rate
+    for (int i = 0; i < moduleX.length; i++)
+    {
+      final double moduleVX = vx - omega * moduleY[i];
+      final double moduleVY = vy + omega * moduleX[i];
+      if (Math.hypot(moduleVX, moduleVY) < 1e-6) {continue;}
+
+      final double steer = steerError(Math.atan2(moduleVY, moduleVX), moduleAngle[i]);
+      moduleAngle[i] += MathUtil.clamp(steer, -moduleMaxSteerRate * dt, moduleMaxSteerRate * dt);
+    }
+  }
+
+  /** Returns true if every module can follow the given fraction of the step */
+  private boolean fits(double scale, double dt)
+  {
+    for (int i = 0; i < moduleX.length; i++)
+    {
+      final double startX = vx - omega * moduleY[i];
+      final double startY = vy + omega * moduleX[i];
+      final double endX = startX + scale * (stepX - stepOmega * moduleY[i]);
+      final double endY = startY + scale * (stepY + stepOmega * moduleX[i]);
+
+      final double startSpeed = Math.hypot(startX, startY);
+      final double endSpeed = Math.hypot(endX, endY);
+
+      // Drive torque falls linearly with speed to nothing at the free speed, and slowing down is only friction limited
+      final double torqueLimit = Math.min(moduleMaxAcceleration, moduleStallAcceleration * Math.max(0, 1 - startSpeed / maxSpeed));
+      if (endSpeed - startSpeed > torqueLimit * dt + 1e-9) {return false;}
+
+      if (endSpeed > steerSpeedThreshold && Math.abs(steerError(Math.atan2(endY, endX), moduleAngle[i])) > moduleMaxSteerRate * dt)
+        {return false;}
+    }
+    return true;
+  }
+
+  /** Returns the steering needed to point along a direction, reversing the module if that is shorter; between +-90 degrees */
+  private static double steerError(double direction, double angle)
+    {return MathUtil.angleModulus(2 * (direction - angle)) / 2;}
+
+  /** Returns the robot relative X velocity setpoint, metres per second */
+  public double getVX() {return vx;}
+
+  /** Returns the robot relative Y velocity setpoint, metres per second */
+  public double getVY() {return vy;}
+
+  /** Returns the angular velocity setpoint, radians per second */
+  public double getOmega() {return omega;}
+}
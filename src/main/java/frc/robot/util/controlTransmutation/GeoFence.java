@@ -2,6 +2,8 @@ package frc.robot.util.controlTransmutation;
 
 import java.util.ArrayList;
 import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.util.datalog.StructLogEntry;
+import edu.wpi.first.wpilibj.DataLogManager;
 import frc.robot.util.Conversions;
 
 /** Add your docs here. */
@@ -9,6 +11,10 @@ public abstract class GeoFence extends FieldObject
 {
   // Inherits from FieldObject: T2D centre, double radius, double buffer, double checkRadius
   protected ArrayList<Attractor> attractors = new ArrayList<Attractor>();
+  /** Log entry prefix for the attractors, null unless logging is enabled */
+  private String logName;
+  /** Output log for each attractor, in the same order as attractors */
+  private ArrayList<StructLogEntry<Translation2d>> attractorLogs;
 
   /**
    * Adds one or more Attractor objects tied to the GeoFence object
@@ -20,10 +26,32 @@ public abstract class GeoFence extends FieldObject
     for (int i = 0; i < newAttractors.length; i++)
     {
       attractors.add(newAttractors[i]);
+      if (attractorLogs != null) {addAttractorLog(attractors.size() - 1);}
     }
     return this;
   }
 
+  /**
+   * Logs the output of each attractor to the DataLogManager log as a Translation2d struct, whenever it changes the input </p>
+   * Attractors are logged as name/Attractor_index, including any added afterwards; each entry is created once
+   * @param name Log entry prefix
+   * @return the GeoFence object with logging enabled
+   */
+  public GeoFence withLogging(String name)
+  {
+    if (attractorLogs != null) {return this;}
+
+    logName = name;
+    attractorLogs = new ArrayList<StructLogEntry<Translation2d>>(attractors.size());
+    for (int i = 0; i < attractors.size(); i++) {addAttractorLog(i);}
+    return this;
+  }
+
+  private void addAttractorLog(int index)
+  {
+    attractorLogs.add(StructLogEntry.create(DataLogManager.getLog(), logName + "/Attractor_" + index, Translation2d.struct));
+  }
+
   @Override
   public Translation2d process(Translation2d controlInput)
   {
@@ -80,9 +108,21 @@ public abstract class GeoFence extends FieldObject
         }
       }
 
-    return attractors.get(index).process(controlInput);
+    final Translation2d controlOutput = attractors.get(index).process(controlInput);
+    if (attractorLogs != null && !controlOutput.equals(controlInput)) {attractorLogs.get(index).append(controlOutput);}
+    return controlOutput;
   }
   
+  /**
+   * Returns the region the robot centre must stay out of, for path planning
+   * @param inflation Distance to grow the region by beyond the object's radius, e.g. the robot radius, metres
+   * @return Vertices of a convex polygon enclosing the region, anticlockwise, or null if the object doesn't block the robot
+   */
+  public Translation2d[] getKeepOut(double inflation)
+  {
+    return null;
+  }
+
   /**
    * Modifies the input to prevent the robot from entering the object
    * @param motionXY XY control input, field-relative, [-1..1],[-1..1]
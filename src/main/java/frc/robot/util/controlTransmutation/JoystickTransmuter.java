@@ -8,6 +8,10 @@ import java.util.function.DoubleSupplier;
 import java.util.function.Supplier;
 
 import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.util.WPIUtilJNI;
+import edu.wpi.first.util.datalog.DataLog;
+import edu.wpi.first.util.datalog.StructLogEntry;
+import edu.wpi.first.wpilibj.DataLogManager;
 
 /** Full joystick processor, takes XY suppliers and runs multiple layers of transmutation to give an XY output */
 public class JoystickTransmuter extends InputTransmuter
@@ -26,6 +30,13 @@ public class JoystickTransmuter extends InputTransmuter
 
   public final Supplier<Translation2d> stickOutputSup;
 
+  /* Stage output logs, null unless logging is enabled */
+  private StructLogEntry<Translation2d> rawLog;
+  private StructLogEntry<Translation2d> deadbandLog;
+  private StructLogEntry<Translation2d> curveLog;
+  private StructLogEntry<Translation2d> brakeLog;
+  private StructLogEntry<Translation2d> fencedLog;
+
   /**
    * Creates a new JoystickTransmuter with the given input axes and default/empty modifiers
    * @param inputX DoubleSupplier of the X/Translation input
@@ -58,6 +69,8 @@ public class JoystickTransmuter extends InputTransmuter
   @Override
   public Translation2d process(Translation2d controlInput)
   {
+    if (rawLog != null) {return processLogged(controlInput);}
+
     Translation2d motionXY = 
     brake.process
     (
@@ -70,6 +83,33 @@ public class JoystickTransmuter extends InputTransmuter
       )
     );
 
+    return processFieldObjects(motionXY);
+  }
+
+  /** Runs the same processing as {@link #process(Translation2d)}, logging the output of each stage */
+  private Translation2d processLogged(Translation2d controlInput)
+  {
+    // All stages share one timestamp, so a single input can be followed through the log
+    final long timestamp = WPIUtilJNI.now();
+    rawLog.append(controlInput, timestamp);
+
+    Translation2d motionXY = deadband.process(controlInput);
+    deadbandLog.append(motionXY, timestamp);
+
+    motionXY = inputCurve.process(motionXY);
+    curveLog.append(motionXY, timestamp);
+
+    motionXY = brake.process(motionXY);
+    brakeLog.append(motionXY, timestamp);
+
+    motionXY = processFieldObjects(motionXY);
+    fencedLog.append(motionXY, timestamp);
+
+    return motionXY;
+  }
+
+  private Translation2d processFieldObjects(Translation2d motionXY)
+  {
     if (rotateThroughput)
       {motionXY = motionXY.unaryMinus();}
     
@@ -169,6 +209,23 @@ public class JoystickTransmuter extends InputTransmuter
     return this;
   }
 
+  /**
+   * Logs the output of each processing stage to the DataLogManager log, as Translation2d structs </p>
+   * Field objects are only logged as a whole, use {@link ObjectList#withLogging(String)} for each object
+   * @param name Log entry prefix, stages are logged as name/Raw, /Deadband, /Curve, /Brake and /Fenced
+   * @return The JoystickTransmuter with logging enabled
+   */
+  public JoystickTransmuter withLogging(String name)
+  {
+    DataLog log = DataLogManager.getLog();
+    rawLog      = StructLogEntry.create(log, name + "/Raw", Translation2d.struct);
+    deadbandLog = StructLogEntry.create(log, name + "/Deadband", Translation2d.struct);
+    curveLog    = StructLogEntry.create(log, name + "/Curve", Translation2d.struct);
+    brakeLog    = StructLogEntry.create(log, name + "/Brake", Translation2d.struct);
+    fencedLog   = StructLogEntry.create(log, name + "/Fenced", Translation2d.struct);
+    return this;
+  }
+
   /**
    * Sets the rotation of the processing, used for alliance rotation
    * @param rotate Should the input be rotated?
@@ -1,8 +1,13 @@
 package frc.robot.util.controlTransmutation;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.util.WPIUtilJNI;
+import edu.wpi.first.util.datalog.StructLogEntry;
+import edu.wpi.first.wpilibj.DataLogManager;
 
 /** Utility object for handling multiple FieldObjects simultaneously */
 public class ObjectList extends FieldObject
@@ -11,6 +16,12 @@ public class ObjectList extends FieldObject
   private ArrayList<FieldObject> fieldObjects;
   /** Holding value for control processing */
   private Translation2d controlOutput;
+  /** Log entry prefix, null unless logging is enabled */
+  private String logName;
+  /** Output log for each field object, in the same order as fieldObjects */
+  private ArrayList<StructLogEntry<Translation2d>> objectLogs;
+  /** Number of objects given log entries, which numbers the next */
+  private int loggedCount = 0;
 
   /**
    * Creates an ObjectList with any number of other field objects to process
@@ -38,6 +49,8 @@ public class ObjectList extends FieldObject
       fetchRobotPos();
       controlOutput = controlInput;
 
+      if (objectLogs != null) {return processLogged();}
+
       for (int i = fieldObjects.size() - 1; i >= 0; i--)
       {
         controlOutput = fieldObjects.get(i).process(controlOutput);
@@ -47,6 +60,56 @@ public class ObjectList extends FieldObject
     return controlInput;
   }
 
+  /** Processes controlOutput through each object, logging the output of any object that changed it */
+  private Translation2d processLogged()
+  {
+    final long timestamp = WPIUtilJNI.now();
+
+    for (int i = fieldObjects.size() - 1; i >= 0; i--)
+    {
+      Translation2d objectInput = controlOutput;
+      controlOutput = fieldObjects.get(i).process(controlOutput);
+      if (!controlOutput.equals(objectInput)) {objectLogs.get(i).append(controlOutput, timestamp);}
+    }
+    return controlOutput;
+  }
+
+  /**
+   * Logs the output of each object to the DataLogManager log as a Translation2d struct, whenever the object changes the input </p>
+   * Objects are logged as name/n_Type, numbered in the order their entries were made; nested object lists log their own objects, 
+   * and fences their own attractors, under that name. Objects added afterwards are logged too; each entry is created once
+   * @param name Log entry prefix
+   * @return this object list with logging enabled
+   */
+  public ObjectList withLogging(String name)
+  {
+    if (objectLogs != null) {return this;}
+
+    logName = name;
+    objectLogs = new ArrayList<StructLogEntry<Translation2d>>(fieldObjects.size());
+    for (FieldObject object : fieldObjects) {objectLogs.add(createLog(object));}
+    return this;
+  }
+
+  /** Creates the log entry for an object, enabling logging of its own contents */
+  private StructLogEntry<Translation2d> createLog(FieldObject object)
+  {
+    final String objectName = logName + "/" + loggedCount++ + "_" + object.getClass().getSimpleName();
+
+    if (object instanceof ObjectList) {((ObjectList)object).withLogging(objectName);}
+    else if (object instanceof GeoFence) {((GeoFence)object).withLogging(objectName);}
+
+    return StructLogEntry.create(DataLogManager.getLog(), objectName, Translation2d.struct);
+  }
+
+  /** Returns the objects in the list, including any nested object lists, as a read-only view */
+  public List<FieldObject> getObjects()
+    {return Collections.unmodifiableList(fieldObjects);}
+
+  /** Returns true if there are no objects in the list */
+  public boolean isEmpty()
+    {return fieldObjects.isEmpty();}
+
   /**
    * Adds the given object to the end of the list
    * @param newObjects list of FieldObjects to be added
@@ -57,6 +120,7 @@ public class ObjectList extends FieldObject
     for (FieldObject object : newObjects) 
     {
       fieldObjects.add(object);
+      if (objectLogs != null) {objectLogs.add(createLog(object));}
     }
     return this;
   }
@@ -70,6 +134,7 @@ public class ObjectList extends FieldObject
   public ObjectList addPriority(FieldObject newObject)
   {
     fieldObjects.add(0, newObject);
+    if (objectLogs != null) {objectLogs.add(0, createLog(newObject));}
     return this;
   }
 }
\ No newline at end of file
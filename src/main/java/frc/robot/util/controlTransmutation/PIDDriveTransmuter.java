@@ -14,6 +14,8 @@ public class PIDDriveTransmuter extends InputTransmuter
   private final PIDController yController;
   private Supplier<Translation2d> targetPosSup;
   private Translation2d targetPos;
+  private double throttleX;
+  private double throttleY;
 
   public PIDDriveTransmuter(double driveP, double driveI, double driveD)
   {
@@ -26,12 +28,42 @@ public class PIDDriveTransmuter extends InputTransmuter
   public Translation2d process(Translation2d robotPos) 
   {
     targetPos = targetPosSup.get();
+    calculate(robotPos.getX(), robotPos.getY(), targetPos.getX(), targetPos.getY());
+    return new Translation2d(throttleX, throttleY);
+  }
+
+  /**
+   * Calculates the throttle towards the target without building any Translation2ds, unless the object list has objects in it.
+   * Read the result with {@link #getThrottleX()} and {@link #getThrottleY()}
+   * @param robotX Robot field X, metres
+   * @param robotY Robot field Y, metres
+   * @param targetX Target field X, metres
+   * @param targetY Target field Y, metres
+   */
+  public void calculate(double robotX, double robotY, double targetX, double targetY)
+  {
+    throttleX = Conversions.clamp(xController.calculate(robotX, targetX));
+    throttleY = Conversions.clamp(yController.calculate(robotY, targetY));
 
-    double throttleX = Conversions.clamp(xController.calculate(robotPos.getX(), targetPos.getX()));
-    double throttleY = Conversions.clamp(yController.calculate(robotPos.getY(), targetPos.getY()));
+    if (!objectList.isEmpty())
+    {
+      Translation2d throttleXY = objectList.process(new Translation2d(throttleX, throttleY));
+      throttleX = throttleXY.getX();
+      throttleY = throttleXY.getY();
+    }
+  }
+
+  /** Returns the X throttle from the last calculation, [-1..1] */
+  public double getThrottleX() {return throttleX;}
 
-    Translation2d throttleXY = new Translation2d(throttleX, throttleY);
-    return objectList.process(throttleXY);
+  /** Returns the Y throttle from the last calculation, [-1..1] */
+  public double getThrottleY() {return throttleY;}
+
+  /** Clears the accumulated state of both PID controllers */
+  public void reset()
+  {
+    xController.reset();
+    yController.reset();
   }
 
   public PIDDriveTransmuter withObjectList(ObjectList objectList)
@@ -40,6 +40,19 @@ public class Box extends GeoFence
     this(Xa, Ya, Xb, Yb, minRadius, minBuffer);
   }
 
+  @Override
+  public Translation2d[] getKeepOut(double inflation)
+  {
+    double grow = radius + inflation;
+    return new Translation2d[] 
+    {
+      new Translation2d(Xa - grow, Ya - grow), 
+      new Translation2d(Xb + grow, Ya - grow), 
+      new Translation2d(Xb + grow, Yb + grow), 
+      new Translation2d(Xa - grow, Yb + grow)
+    };
+  }
+
   @Override
   public double getDistance()
   {
@@ -6,6 +6,7 @@ package frc.robot.util.controlTransmutation.geoFence;
 
 import java.util.function.BooleanSupplier;
 
+import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Translation2d;
 import frc.robot.util.Conversions;
@@ -83,6 +84,10 @@ public class Line extends GeoFence
     );
   }
 
+  public Translation2d getPointA() {return pointA;}
+
+  public Translation2d getPointB() {return pointB;}
+
   @Override
   public double getDistance()
   {
@@ -111,6 +116,40 @@ public class Line extends GeoFence
       {return ((robotPos.getX() * normY) - (robotPos.getY() * normX) - normXY) - (radius + robotRadius);}
   }
 
+  /** Returns a rectangle enclosing the line, grown on every side by the radius and inflation */
+  @Override
+  public Translation2d[] getKeepOut(double inflation)
+  {
+    double grow = radius + inflation;
+    Translation2d along = pointB.minus(pointA).div(length).times(grow);
+    Translation2d across = along.rotateBy(Rotation2d.kCCW_90deg);
+    return new Translation2d[] 
+    {
+      pointA.minus(along).minus(across), 
+      pointB.plus(along).minus(across), 
+      pointB.plus(along).plus(across), 
+      pointA.minus(along).plus(across)
+    };
+  }
+
+  /**
+   * Returns a pose relative to the line, facing the line along the approach direction, placed as {@link #addRelativeAttractor} places Attractors
+   * @param antiNormal Reverse the approach direction between normal/antinormal to the line
+   * @param normalOffset Distance away from the line along the approach direction, metres
+   * @param tangentOffset Distance away from the line centre, metres right relative to the approach direction
+   * @return The relative pose
+   */
+  public Pose2d getRelativePose(boolean antiNormal, double normalOffset, double tangentOffset)
+  {
+    Translation2d unitNormal  = pointA.minus(pointB).div(length).rotateBy(antiNormal ? Rotation2d.kCW_90deg : Rotation2d.kCCW_90deg);
+    Translation2d unitTangent = unitNormal.rotateBy(Rotation2d.kCCW_90deg);
+    return new Pose2d
+    (
+      centre.plus(unitNormal.times(normalOffset)).plus(unitTangent.times(tangentOffset)), 
+      unitNormal.getAngle().plus(Rotation2d.k180deg)
+    );
+  }
+
   /**
    * Constructs and adds one or more Attractors, relative to the line
    * @param antiNormal Reverse the approach direction between normal/antinormal to the line
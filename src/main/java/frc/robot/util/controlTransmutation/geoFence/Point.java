@@ -4,6 +4,7 @@
 
 package frc.robot.util.controlTransmutation.geoFence;
 
+import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Translation2d;
 import frc.robot.util.controlTransmutation.GeoFence;
 import static frc.robot.constants.FieldConstants.GeoFencing.*;
@@ -28,6 +29,21 @@ public class Point extends GeoFence
     this(x, y, minRadius, minBuffer);
   }
 
+  /** Returns an octagon enclosing the inflated circle */
+  @Override
+  public Translation2d[] getKeepOut(double inflation)
+  {
+    final int sides = 8;
+    // Circumscribed radius of an octagon whose inscribed circle is the inflated point
+    double grow = (radius + inflation) / Math.cos(Math.PI / sides);
+    Translation2d[] vertices = new Translation2d[sides];
+    for (int i = 0; i < sides; i++)
+    {
+      vertices[i] = centre.plus(new Translation2d(grow, Rotation2d.fromRadians((i + 0.5) * 2 * Math.PI / sides)));
+    }
+    return vertices;
+  }
+
   @Override
   protected Translation2d dampMotion(Translation2d motionXY)
   {
@@ -84,6 +84,20 @@ public class Polygon extends GeoFence
     checkRadius = radius + buffer;
   }
 
+  /** Returns the polygon's corners, moved out so every edge is the radius and inflation further from the centre */
+  @Override
+  public Translation2d[] getKeepOut(double inflation)
+  {
+    Translation2d[] vertices = new Translation2d[edgeLines.size()];
+    for (int i = 0; i < vertices.length; i++)
+    {
+      Translation2d corner = edgeLines.get(i).getPointA().minus(centre);
+      // Moving every edge out by d moves the corners out by d / cos(half the angle between corners)
+      vertices[i] = centre.plus(corner.times(1 + (inflation / Math.cos(Math.PI / vertices.length)) / corner.getNorm()));
+    }
+    return vertices;
+  }
+
   @Override
   protected Translation2d dampMotion(Translation2d motionXY)
   {
@@ -106,6 +120,15 @@ public class Polygon extends GeoFence
     return nearestLine().getDirectionalDistance();
   }
 
+  /** Logs the attractors of each edge under name/index_Line, as the edges process them */
+  @Override
+  public Polygon withLogging(String name)
+  {
+    super.withLogging(name);
+    for (int i = 0; i < edgeLines.size(); i++) {edgeLines.get(i).withLogging(name + "/" + i + "_Line");}
+    return this;
+  }
+
   @Override
   public boolean checkAttractors() 
   {
@@ -168,6 +191,17 @@ public class Polygon extends GeoFence
    * @return List of Translation2ds, metres
    */
   public ArrayList<Translation2d> getMidPoints()
+  {
+    ArrayList<Translation2d> midPoints = getEdgeMidPoints();
+    midPoints.add(centre);
+    return midPoints;
+  }
+
+  /**
+   * Gets the list of midpoints of the lines of the polygon, one per side, anticlockwise
+   * @return List of Translation2ds, metres
+   */
+  public ArrayList<Translation2d> getEdgeMidPoints()
   {
     ArrayList<Translation2d> midPoints = new ArrayList<Translation2d>();
 
@@ -176,7 +210,6 @@ public class Polygon extends GeoFence
       midPoints.add(edgeLines.get(i).getCentre());
     }
 
-    midPoints.add(centre);
     return midPoints;
   }
 
@@ -1,9 +1,13 @@
 package frc.robot.util.libs;
 
+import java.util.concurrent.locks.LockSupport;
+
 import com.ctre.phoenix6.SignalLogger;
+import com.ctre.phoenix6.Utils;
 import com.ctre.phoenix6.swerve.SwerveDrivetrain.SwerveDriveState;
 
 import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.kinematics.ChassisSpeeds;
 import edu.wpi.first.math.kinematics.SwerveModulePosition;
 import edu.wpi.first.math.kinematics.SwerveModuleState;
@@ -20,17 +24,70 @@ import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj.util.Color;
 import edu.wpi.first.wpilibj.util.Color8Bit;
 
+/**
+ * Publishes the swerve drive state. </p>
+ * The odometry thread only copies each state into a preallocated ring buffer; a low priority writer thread
+ * drains it in batches to NT and SignalLogger, timestamped at capture. Sendables are registered once, NT
+ * values are only set when they change, and the Field2d and module Mechanism2ds are decimated to the
+ * dashboard period. SignalLogger is written for every sample.
+ */
 public class Telemetry {
     private final double MaxSpeed;
+    private final double DashboardPeriod;
 
     /**
      * Construct a telemetry object, with the specified max speed of the robot
-     * 
+     *
      * @param maxSpeed Maximum speed in meters per second
      */
     public Telemetry(double maxSpeed) {
+        this(maxSpeed, 0);
+    }
+
+    /**
+     * Construct a telemetry object, with the specified max speed of the robot and dashboard update period
+     *
+     * @param maxSpeed Maximum speed in meters per second
+     * @param dashboardPeriod Minimum seconds between Field2d and Mechanism2d updates
+     */
+    public Telemetry(double maxSpeed, double dashboardPeriod) {
+        this(maxSpeed, dashboardPeriod, 256, 0.02);
+    }
+
+    /**
+     * Construct a telemetry object, with the specified max speed of the robot, dashboard update period,
+     * and writer thread buffering
+     *
+     * @param maxSpeed Maximum speed in meters per second
+     * @param dashboardPeriod Minimum seconds between Field2d and Mechanism2d updates
+     * @param bufferSize Number of samples the odometry thread can queue before they are dropped
+     * @param writerPeriod Seconds between writer thread batches
+     */
+    public Telemetry(double maxSpeed, double dashboardPeriod, int bufferSize, double writerPeriod) {
         MaxSpeed = maxSpeed;
+        DashboardPeriod = dashboardPeriod;
+        m_capacity = bufferSize;
+        m_ring = new double[bufferSize * SAMPLE_SIZE];
+        m_writerPeriodNanos = (long)(writerPeriod * 1e9);
+
+        for (int i = 0; i < 4; ++i) {
+            m_moduleStates[i] = new SwerveModuleState();
+            m_moduleTargets[i] = new SwerveModuleState();
+            m_modulePositions[i] = new SwerveModulePosition();
+        }
+
         SignalLogger.start();
+
+        /* Sendables and the Field2d type only need to be published once */
+        fieldTypePub.set("Field2d");
+        for (int i = 0; i < 4; ++i) {
+            SmartDashboard.putData("Module " + i, m_moduleMechanisms[i]);
+        }
+
+        m_writerThread = new Thread(this::runWriter, "Telemetry");
+        m_writerThread.setDaemon(true);
+        m_writerThread.setPriority(Thread.MIN_PRIORITY);
+        m_writerThread.start();
     }
 
     /* What to publish over networktables for telemetry */
@@ -45,6 +102,8 @@ public class Telemetry {
     private final StructArrayPublisher<SwerveModulePosition> driveModulePositions = driveStateTable.getStructArrayTopic("ModulePositions", SwerveModulePosition.struct).publish();
     private final DoublePublisher driveTimestamp = driveStateTable.getDoubleTopic("Timestamp").publish();
     private final DoublePublisher driveOdometryFrequency = driveStateTable.getDoubleTopic("OdometryFrequency").publish();
+    private final DoublePublisher telemetryTime = driveStateTable.getDoubleTopic("TelemetryTime").publish();
+    private final DoublePublisher telemetryOverflows = driveStateTable.getDoubleTopic("TelemetryOverflows").publish();
 
     /* Robot pose for field positioning */
     private final NetworkTable table = inst.getTable("Pose");
@@ -77,48 +136,209 @@ public class Telemetry {
             .append(new MechanismLigament2d("Direction", 0.1, 0, 0, new Color8Bit(Color.kWhite))),
     };
 
+    /* Sample layout in the ring buffer */
+    private static final int TIMESTAMP = 0;
+    private static final int ODOMETRY_PERIOD = 1;
+    private static final int POSE = 2;
+    private static final int SPEEDS = 5;
+    private static final int MODULE_STATES = 8;
+    private static final int MODULE_TARGETS = 16;
+    private static final int MODULE_POSITIONS = 24;
+    private static final int COPY_TIME = 32;
+    private static final int SAMPLE_SIZE = 33;
+
+    /*
+     * Single-producer single-consumer ring of samples. Only the odometry thread writes m_head and only
+     * the writer thread writes m_tail; the volatile writes publish the sample contents between them.
+     */
+    private final int m_capacity;
+    private final double[] m_ring;
+    private volatile long m_head = 0;
+    private volatile long m_tail = 0;
+    private volatile long m_overflows = 0;
+
+    private final long m_writerPeriodNanos;
+    private final Thread m_writerThread;
+
+    /* Writer thread working values */
     private final double[] m_poseArray = new double[3];
     private final double[] m_moduleStatesArray = new double[8];
     private final double[] m_moduleTargetsArray = new double[8];
+    private final SwerveModuleState[] m_moduleStates = new SwerveModuleState[4];
+    private final SwerveModuleState[] m_moduleTargets = new SwerveModuleState[4];
+    private final SwerveModulePosition[] m_modulePositions = new SwerveModulePosition[4];
+    private final ChassisSpeeds m_speeds = new ChassisSpeeds();
+
+    /* Last published values, for change detection */
+    private final double[] m_lastPose = new double[3];
+    private final double[] m_lastSpeeds = new double[3];
+    private final double[] m_lastModuleStates = new double[8];
+    private final double[] m_lastModuleTargets = new double[8];
+    private final double[] m_lastModulePositions = new double[8];
+    private double m_lastOdometryPeriod = 0;
+    private double m_lastDashboardTime = Double.NEGATIVE_INFINITY;
 
-    /** Accept the swerve drive state and telemeterize it to SmartDashboard and SignalLogger. */
+    /**
+     * Accept the swerve drive state and queue it for the writer thread. </p>
+     * Runs on the odometry thread, so this only copies primitives into the ring; if the ring is full the
+     * sample is dropped and counted.
+     */
     public void telemeterize(SwerveDriveState state) {
-        /* Telemeterize the swerve drive state */
-        drivePose.set(state.Pose);
-        driveSpeeds.set(state.Speeds);
-        driveModuleStates.set(state.ModuleStates);
-        driveModuleTargets.set(state.ModuleTargets);
-        driveModulePositions.set(state.ModulePositions);
-        driveTimestamp.set(state.Timestamp);
-        driveOdometryFrequency.set(1.0 / state.OdometryPeriod);
-
-        /* Also write to log file */
-        m_poseArray[0] = state.Pose.getX();
-        m_poseArray[1] = state.Pose.getY();
-        m_poseArray[2] = state.Pose.getRotation().getDegrees();
+        final long startTime = System.nanoTime();
+
+        final long head = m_head;
+        if (head - m_tail >= m_capacity) {
+            m_overflows = m_overflows + 1;
+            return;
+        }
+
+        final double[] ring = m_ring;
+        final int base = (int)(head % m_capacity) * SAMPLE_SIZE;
+
+        ring[base + TIMESTAMP] = state.Timestamp;
+        ring[base + ODOMETRY_PERIOD] = state.OdometryPeriod;
+        ring[base + POSE + 0] = state.Pose.getX();
+        ring[base + POSE + 1] = state.Pose.getY();
+        ring[base + POSE + 2] = state.Pose.getRotation().getRadians();
+        ring[base + SPEEDS + 0] = state.Speeds.vxMetersPerSecond;
+        ring[base + SPEEDS + 1] = state.Speeds.vyMetersPerSecond;
+        ring[base + SPEEDS + 2] = state.Speeds.omegaRadiansPerSecond;
         for (int i = 0; i < 4; ++i) {
-            m_moduleStatesArray[i*2 + 0] = state.ModuleStates[i].angle.getRadians();
-            m_moduleStatesArray[i*2 + 1] = state.ModuleStates[i].speedMetersPerSecond;
-            m_moduleTargetsArray[i*2 + 0] = state.ModuleTargets[i].angle.getRadians();
-            m_moduleTargetsArray[i*2 + 1] = state.ModuleTargets[i].speedMetersPerSecond;
+            ring[base + MODULE_STATES + i*2 + 0] = state.ModuleStates[i].angle.getRadians();
+            ring[base + MODULE_STATES + i*2 + 1] = state.ModuleStates[i].speedMetersPerSecond;
+            ring[base + MODULE_TARGETS + i*2 + 0] = state.ModuleTargets[i].angle.getRadians();
+            ring[base + MODULE_TARGETS + i*2 + 1] = state.ModuleTargets[i].speedMetersPerSecond;
+            ring[base + MODULE_POSITIONS + i*2 + 0] = state.ModulePositions[i].angle.getRadians();
+            ring[base + MODULE_POSITIONS + i*2 + 1] = state.ModulePositions[i].distanceMeters;
         }
+        ring[base + COPY_TIME] = (System.nanoTime() - startTime) / 1e9;
 
-        SignalLogger.writeDoubleArray("DriveState/Pose", m_poseArray);
-        SignalLogger.writeDoubleArray("DriveState/ModuleStates", m_moduleStatesArray);
-        SignalLogger.writeDoubleArray("DriveState/ModuleTargets", m_moduleTargetsArray);
-        SignalLogger.writeDouble("DriveState/OdometryPeriod", state.OdometryPeriod, "seconds");
+        m_head = head + 1;
+    }
 
-        /* Telemeterize the pose to a Field2d */
-        fieldTypePub.set("Field2d");
-        fieldPub.set(m_poseArray);
+    /** Returns the number of samples dropped because the writer thread fell a full ring behind */
+    public long getOverflowCount() {
+        return m_overflows;
+    }
 
-        /* Telemeterize the module states to a Mechanism2d */
-        for (int i = 0; i < 4; ++i) {
-            m_moduleSpeeds[i].setAngle(state.ModuleStates[i].angle);
-            m_moduleDirections[i].setAngle(state.ModuleStates[i].angle);
-            m_moduleSpeeds[i].setLength(state.ModuleStates[i].speedMetersPerSecond / (2 * MaxSpeed));
+    private void runWriter() {
+        while (!Thread.currentThread().isInterrupted()) {
+            final long head = m_head;
+            long tail = m_tail;
+            for (; tail < head; ++tail) {
+                write((int)(tail % m_capacity) * SAMPLE_SIZE);
+                /* Release each slot as soon as it's written, so a long batch doesn't stall the producer */
+                m_tail = tail + 1;
+            }
+            telemetryOverflows.set(m_overflows);
 
-            SmartDashboard.putData("Module " + i, m_moduleMechanisms[i]);
+            LockSupport.parkNanos(m_writerPeriodNanos);
+        }
+    }
+
+    /** Publishes and logs the sample starting at base in the ring */
+    private void write(int base) {
+        final double[] ring = m_ring;
+        final double timestamp = ring[base + TIMESTAMP];
+        final double odometryPeriod = ring[base + ODOMETRY_PERIOD];
+
+        /* Publish with the capture time, as the sample can be a batch period old */
+        final double latency = Utils.getCurrentTimeSeconds() - timestamp;
+        final long ntTime = (long)(Utils.currentTimeToFPGATime(timestamp) * 1e6);
+
+        m_poseArray[0] = ring[base + POSE + 0];
+        m_poseArray[1] = ring[base + POSE + 1];
+        m_poseArray[2] = Math.toDegrees(ring[base + POSE + 2]);
+        System.arraycopy(ring, base + MODULE_STATES, m_moduleStatesArray, 0, 8);
+        System.arraycopy(ring, base + MODULE_TARGETS, m_moduleTargetsArray, 0, 8);
+
+        /* Telemeterize the swerve drive state, skipping anything that hasn't changed */
+        if (updateIfChanged(m_lastPose, m_poseArray)) {
+            drivePose.set(new Pose2d(m_poseArray[0], m_poseArray[1], new Rotation2d(ring[base + POSE + 2])), ntTime);
+        }
+        if (updateIfChanged(m_lastSpeeds, ring[base + SPEEDS + 0], ring[base + SPEEDS + 1], ring[base + SPEEDS + 2])) {
+            m_speeds.vxMetersPerSecond = ring[base + SPEEDS + 0];
+            m_speeds.vyMetersPerSecond = ring[base + SPEEDS + 1];
+            m_speeds.omegaRadiansPerSecond = ring[base + SPEEDS + 2];
+            driveSpeeds.set(m_speeds, ntTime);
+        }
+        if (updateIfChanged(m_lastModuleStates, m_moduleStatesArray)) {
+            for (int i = 0; i < 4; ++i) {
+                m_moduleStates[i].angle = new Rotation2d(m_moduleStatesArray[i*2 + 0]);
+                m_moduleStates[i].speedMetersPerSecond = m_moduleStatesArray[i*2 + 1];
+            }
+            driveModuleStates.set(m_moduleStates, ntTime);
+        }
+        if (updateIfChanged(m_lastModuleTargets, m_moduleTargetsArray)) {
+            for (int i = 0; i < 4; ++i) {
+                m_moduleTargets[i].angle = new Rotation2d(m_moduleTargetsArray[i*2 + 0]);
+                m_moduleTargets[i].speedMetersPerSecond = m_moduleTargetsArray[i*2 + 1];
+            }
+            driveModuleTargets.set(m_moduleTargets, ntTime);
+        }
+        if (updateIfChanged(m_lastModulePositions, ring, base + MODULE_POSITIONS)) {
+            for (int i = 0; i < 4; ++i) {
+                m_modulePositions[i].angle = new Rotation2d(m_lastModulePositions[i*2 + 0]);
+                m_modulePositions[i].distanceMeters = m_lastModulePositions[i*2 + 1];
+            }
+            driveModulePositions.set(m_modulePositions, ntTime);
+        }
+        if (odometryPeriod != m_lastOdometryPeriod) {
+            m_lastOdometryPeriod = odometryPeriod;
+            driveOdometryFrequency.set(1.0 / odometryPeriod, ntTime);
+        }
+        driveTimestamp.set(timestamp, ntTime);
+        telemetryTime.set(ring[base + COPY_TIME], ntTime);
+
+        /* Also write to log file, at full rate */
+        SignalLogger.writeDoubleArray("DriveState/Pose", m_poseArray, "", latency);
+        SignalLogger.writeDoubleArray("DriveState/ModuleStates", m_moduleStatesArray, "", latency);
+        SignalLogger.writeDoubleArray("DriveState/ModuleTargets", m_moduleTargetsArray, "", latency);
+        SignalLogger.writeDouble("DriveState/OdometryPeriod", odometryPeriod, "seconds", latency);
+        SignalLogger.writeDouble("DriveState/TelemetryTime", ring[base + COPY_TIME], "seconds", latency);
+
+        /* Dashboard visualisations only need to keep up with a human */
+        if (timestamp - m_lastDashboardTime >= DashboardPeriod) {
+            m_lastDashboardTime = timestamp;
+
+            /* Telemeterize the pose to a Field2d */
+            fieldPub.set(m_poseArray, ntTime);
+
+            /* Telemeterize the module states to a Mechanism2d */
+            for (int i = 0; i < 4; ++i) {
+                final double angle = Math.toDegrees(m_moduleStatesArray[i*2 + 0]);
+                m_moduleSpeeds[i].setAngle(angle);
+                m_moduleDirections[i].setAngle(angle);
+                m_moduleSpeeds[i].setLength(m_moduleStatesArray[i*2 + 1] / (2 * MaxSpeed));
+            }
+        }
+    }
+
+    /** Copies values into last if any differ, returning whether they did */
+    private static boolean updateIfChanged(double[] last, double[] values) {
+        return updateIfChanged(last, values, 0);
+    }
+
+    /** Copies values, starting at offset, into last if any differ, returning whether they did */
+    private static boolean updateIfChanged(double[] last, double[] values, int offset) {
+        boolean changed = false;
+        for (int i = 0; i < last.length; ++i) {
+            if (last[i] != values[offset + i]) {
+                last[i] = values[offset + i];
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    /** Three-value form of {@link #updateIfChanged(double[], double[])}, to avoid building an array */
+    private static boolean updateIfChanged(double[] last, double a, double b, double c) {
+        if (last[0] == a && last[1] == b && last[2] == c) {
+            return false;
         }
+        last[0] = a;
+        last[1] = b;
+        last[2] = c;
+        return true;
     }
 }
@@ -0,0 +1,101 @@
+package frc.robot.util.logAnalysis;
+
+import java.util.Arrays;
+
+/** Growable list of samples, for computing summary statistics */
+public class Distribution
+{
+  private double[] values = new double[256];
+  private int count = 0;
+  private boolean sorted = true;
+
+  public void add(double value)
+  {
+    if (count == values.length) {values = Arrays.copyOf(values, count * 2);}
+    values[count++] = value;
+    sorted = false;
+  }
+
+  /** Adds every sample from the other distribution */
+  public void addAll(Distribution other)
+  {
+    for (int i = 0; i < other.count; i++) {add(other.values[i]);}
+  }
+
+  public int count() {return count;}
+
+  public double mean()
+  {
+    if (count == 0) {return Double.NaN;}
+
+    double total = 0;
+    for (int i = 0; i < count; i++) {total += values[i];}
+    return total / count;
+  }
+
+  /** Returns the population standard deviation */
+  public double stdDev()
+  {
+    if (count == 0) {return Double.NaN;}
+
+    final double mean = mean();
+    double total = 0;
+    for (int i = 0; i < count; i++) {total += (values[i] - mean) * (values[i] - mean);}
+    return Math.sqrt(total / count);
+  }
+
+  /**
+   * Returns the nearest-rank percentile
+   * @param fraction Percentile as a fraction, [0..1]
+   */
+  public double percentile(double fraction)
+  {
+    if (count == 0) {return Double.NaN;}
+
+    sort();
+    return values[Math.min(count - 1, Math.max(0, (int)Math.ceil(fraction * count) - 1))];
+  }
+
+  public double max()
+  {
+    if (count == 0) {return Double.NaN;}
+
+    sort();
+    return values[count - 1];
+  }
+
+  /** Returns the number of samples strictly greater than the threshold */
+  public int countAbove(double threshold)
+  {
+    int above = 0;
+    for (int i = 0; i < count; i++) {if (values[i] > threshold) {above++;}}
+    return above;
+  }
+
+  /**
+   * Formats the count, mean, p50, p99 and max
+   * @param scale Multiplier applied to each value, e.g. 1000 to show seconds as milliseconds
+   * @param units Units label for the scaled values
+   */
+  public String summary(double scale, String units)
+  {
+    if (count == 0) {return "no samples";}
+
+    return String.format
+    (
+      "n=%d mean=%.2f%s p50=%.2f%s p99=%.2f%s max=%.2f%s",
+      count,
+      mean() * scale, units,
+      percentile(0.5) * scale, units,
+      percentile(0.99) * scale, units,
+      max() * scale, units
+    );
+  }
+
+  private void sort()
+  {
+    if (sorted) {return;}
+    Arrays.sort(values, 0, count);
+    sorted = true;
+  }
+}
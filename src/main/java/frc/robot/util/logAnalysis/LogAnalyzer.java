@@ -0,0 +1,67 @@
+package frc.robot.util.logAnalysis;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Command-line performance report for wpilog files copied off the robot </p>
+ * Usage: {@code ./gradlew analyzeLogs --args="<file or directory> ..."}. Directories are searched recursively for .wpilog files.
+ * Files are analysed in parallel; each file's report is printed, followed by the combined report for all of them.
+ */
+public final class LogAnalyzer
+{
+  private LogAnalyzer() {}
+
+  public static void main(String... args) throws IOException
+  {
+    if (args.length == 0)
+    {
+      System.err.println("Usage: LogAnalyzer <file.wpilog | directory> ...");
+      System.exit(1);
+    }
+
+    List<Path> files = new ArrayList<Path>();
+    for (String arg : args) {files.addAll(findLogs(Path.of(arg)));}
+    files.sort(Comparator.naturalOrder());
+
+    List<LogMetrics> results = files.parallelStream().map(LogAnalyzer::analyzeAndPrint).toList();
+
+    LogMetrics total = new LogMetrics();
+    for (LogMetrics result : results) {total.merge(result);}
+
+    System.out.println("==== All logs ====");
+    System.out.println(total.report());
+  }
+
+  private static List<Path> findLogs(Path path) throws IOException
+  {
+    if (!Files.isDirectory(path)) {return List.of(path);}
+
+    try (Stream<Path> walk = Files.walk(path))
+    {
+      return walk.filter(file -> file.toString().endsWith(".wpilog")).toList();
+    }
+  }
+
+  /** Analyses one file and prints its report; unreadable files are reported and contribute nothing */
+  private static LogMetrics analyzeAndPrint(Path file)
+  {
+    try
+    {
+      LogMetrics metrics = LogMetrics.analyze(file);
+      // One print call per file, so parallel reports don't interleave
+      System.out.println("==== " + file + " ====" + System.lineSeparator() + metrics.report());
+      return metrics;
+    }
+    catch (IOException e)
+    {
+      System.err.println("Skipping " + file + ": " + e.getMessage());
+      return new LogMetrics();
+    }
+  }
+}
@@ -0,0 +1,285 @@
+package frc.robot.util.logAnalysis;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+import edu.wpi.first.util.datalog.DataLogReader;
+import edu.wpi.first.util.datalog.DataLogRecord;
+import edu.wpi.first.wpilibj.TimedRobot;
+
+import frc.robot.util.AutoFactories;
+
+/**
+ * Performance metrics from one or more wpilog files </p>
+ * Reads the entries written by LoopProfiler, Telemetry (through DataLogManager's NT logging), the Limelights and Vision,
+ * the driver input transmutation logs and the auto step markers. SignalLogger hoot files converted to wpilog are read too,
+ * for the full-rate odometry period.
+ */
+public class LogMetrics
+{
+  /** Difference between transmutation outputs below which the fences are considered to have left the input alone */
+  private static final double interventionTolerance = 1e-6;
+
+  private int files = 0;
+
+  private final Distribution loopPeriod = new Distribution();
+  private final Distribution loopTime = new Distribution();
+  private final Distribution odometryPeriod = new Distribution();
+  private final Distribution visionLatency = new Distribution();
+  private final Map<String, Distribution> autoSteps = new TreeMap<String, Distribution>();
+  /** Vision counter increases per camera/counter, e.g. "limelight-fore/Accepted" */
+  private final Map<String, Double> visionCounts = new TreeMap<String, Double>();
+
+  private double drivenSeconds = 0;
+  private double interventionSeconds = 0;
+
+  /**
+   * Streams a wpilog through the metrics; the file is memory-mapped by the reader, not loaded
+   * @param file Path to a .wpilog file
+   * @return Metrics for the file
+   * @throws IOException If the file can't be read, or isn't a valid wpilog
+   */
+  public static LogMetrics analyze(Path file) throws IOException
+  {
+    DataLogReader reader = new DataLogReader(file.toString());
+    if (!reader.isValid()) {throw new IOException("Not a valid wpilog: " + file);}
+
+    LogMetrics metrics = new LogMetrics();
+    metrics.files = 1;
+    new FileState(metrics).read(reader);
+    return metrics;
+  }
+
+  /** Adds another set of metrics into this one */
+  public LogMetrics merge(LogMetrics other)
+  {
+    files += other.files;
+    loopPeriod.addAll(other.loopPeriod);
+    loopTime.addAll(other.loopTime);
+    odometryPeriod.addAll(other.odometryPeriod);
+    visionLatency.addAll(other.visionLatency);
+    other.autoSteps.forEach((step, durations) -> autoSteps.computeIfAbsent(step, key -> new Distribution()).addAll(durations));
+    other.visionCounts.forEach((counter, value) -> visionCounts.merge(counter, value, Double::sum));
+    drivenSeconds += other.drivenSeconds;
+    interventionSeconds += other.interventionSeconds;
+    return this;
+  }
+
+  /** Formats every metric as a multi-line report */
+  public String report()
+  {
+    final double nominalPeriod = TimedRobot.kDefaultPeriod;
+    StringBuilder report = new StringBuilder();
+
+    report.append(String.format("Files: %d%n", files));
+
+    report.append(String.format("Loop period:      %s%n", loopPeriod.summary(1000, "ms")));
+    report.append(String.format("Loop time:        %s%n", loopTime.summary(1000, "ms")));
+    report.append
+    (
+      String.format
+      (
+        "Overruns:         %d of %d loops (%.2f%%)%n",
+        loopTime.countAbove(nominalPeriod),
+        loopTime.count(),
+        loopTime.count() == 0 ? 0 : 100.0 * loopTime.countAbove(nominalPeriod) / loopTime.count()
+      )
+    );
+
+    report.append(String.format("Odometry period:  %s%n", odometryPeriod.summary(1000, "ms")));
+    report.append(String.format("Odometry jitter:  %.3fms stddev%n", odometryPeriod.stdDev() * 1000));
+
+    report.append(String.format("Vision latency:   %s%n", visionLatency.summary(1, "ms")));
+    for (String camera : cameras())
+    {
+      final double accepted = visionCounts.getOrDefault(camera + "/Accepted", 0.0);
+      final double rejected = visionCounts.getOrDefault(camera + "/Rejected", 0.0);
+      report.append
+      (
+        String.format
+        (
+          "  %s: %.0f frames, %.0f dropped, %.0f accepted, %.0f rejected (%.1f%% accepted)%n",
+          camera,
+          visionCounts.getOrDefault(camera + "/Frames", 0.0),
+          visionCounts.getOrDefault(camera + "/Drops", 0.0),
+          accepted,
+          rejected,
+          accepted + rejected == 0 ? 0 : 100 * accepted / (accepted + rejected)
+        )
+      );
+    }
+
+    report.append
+    (
+      String.format
+      (
+        "Fence intervention: %.1fs of %.1fs driven (%.1f%%)%n",
+        interventionSeconds,
+        drivenSeconds,
+        drivenSeconds == 0 ? 0 : 100 * interventionSeconds / drivenSeconds
+      )
+    );
+
+    report.append(String.format("Auto steps:%n"));
+    autoSteps.forEach((step, durations) -> report.append(String.format("  %-10s %s%n", step, durations.summary(1, "s"))));
+
+    return report.toString();
+  }
+
+  private Iterable<String> cameras()
+  {
+    TreeMap<String, Boolean> cameras = new TreeMap<String, Boolean>();
+    for (String counter : visionCounts.keySet()) {cameras.put(counter.substring(0, counter.lastIndexOf('/')), true);}
+    return cameras.keySet();
+  }
+
+  /** Per-file parsing state, feeding one LogMetrics */
+  private static class FileState
+  {
+    private final LogMetrics metrics;
+    private final Map<Integer, Consumer<DataLogRecord>> handlers = new HashMap<Integer, Consumer<DataLogRecord>>();
+
+    private double lastOdometryTimestamp = Double.NaN;
+    private final Map<String, Double> lastCaptureLatency = new HashMap<String, Double>();
+    private final Map<String, double[]> counterRanges = new HashMap<String, double[]>();
+
+    private long brakeTimestamp = -1;
+    private double brakeX = 0;
+    private double brakeY = 0;
+    private long lastFencedTimestamp = -1;
+    private boolean lastIntervened = false;
+
+    private String currentStep = null;
+    private long stepStartTimestamp = 0;
+
+    private FileState(LogMetrics metrics)
+    {
+      this.metrics = metrics;
+    }
+
+    private void read(DataLogReader reader)
+    {
+      for (DataLogRecord record : reader)
+      {
+        if (record.isStart())
+        {
+          var start = record.getStartData();
+          Consumer<DataLogRecord> handler = handlerFor(start.name);
+          if (handler != null) {handlers.put(start.entry, handler);}
+        }
+        else if (!record.isControl())
+        {
+          Consumer<DataLogRecord> handler = handlers.get(record.getEntry());
+          if (handler != null) {handler.accept(record);}
+        }
+      }
+
+      counterRanges.forEach((counter, range) -> metrics.visionCounts.merge(counter, range[1] - range[0], Double::sum));
+    }
+
+    /** Returns the handler for an entry name, or null if it isn't used */
+    private Consumer<DataLogRecord> handlerFor(String name)
+    {
+      if (name.equals("Profiler/LoopPeriod")) {return record -> metrics.loopPeriod.add(record.getDouble());}
+      if (name.equals("Profiler/LoopTime")) {return record -> metrics.loopTime.add(record.getDouble());}
+
+      if (name.equals("NT:/DriveState/Timestamp")) {return this::onOdometryTimestamp;}
+      if (name.equals("DriveState/OdometryPeriod")) {return record -> metrics.odometryPeriod.add(record.getDouble());}
+
+      if (name.startsWith("NT:/limelight"))
+      {
+        final String camera = name.substring(4, name.lastIndexOf('/'));
+        if (name.endsWith("/cl")) {return record -> lastCaptureLatency.put(camera, record.getDouble());}
+        if (name.endsWith("/tl")) {return record -> onPipelineLatency(camera, record.getDouble());}
+      }
+
+      if (name.startsWith("NT:/Vision/") && name.chars().filter(c -> c == '/').count() == 3)
+      {
+        final String counter = name.substring("NT:/Vision/".length());
+        return record -> onCounter(counter, record.getDouble());
+      }
+
+      if (name.equals("Transmutation/Driver/Brake")) {return this::onBrake;}
+      if (name.equals("Transmutation/Driver/Fenced")) {return this::onFenced;}
+
+      if (name.equals(AutoFactories.stepLogName)) {return this::onAutoStep;}
+
+      return null;
+    }
+
+    private void onOdometryTimestamp(DataLogRecord record)
+    {
+      final double timestamp = record.getDouble();
+      if (!Double.isNaN(lastOdometryTimestamp) && timestamp > lastOdometryTimestamp)
+        {metrics.odometryPeriod.add(timestamp - lastOdometryTimestamp);}
+      lastOdometryTimestamp = timestamp;
+    }
+
+    private void onPipelineLatency(String camera, double pipelineLatency)
+    {
+      // Total latency is pipeline plus capture, both in milliseconds
+      metrics.visionLatency.add(pipelineLatency + lastCaptureLatency.getOrDefault(camera, 0.0));
+    }
+
+    private void onCounter(String counter, double value)
+    {
+      double[] range = counterRanges.get(counter);
+      if (range == null) {counterRanges.put(counter, new double[] {value, value});}
+      else {range[1] = value;}
+    }
+
+    private void onBrake(DataLogRecord record)
+    {
+      ByteBuffer buffer = ByteBuffer.wrap(record.getRaw()).order(ByteOrder.LITTLE_ENDIAN);
+      brakeTimestamp = record.getTimestamp();
+      brakeX = buffer.getDouble(0);
+      brakeY = buffer.getDouble(8);
+    }
+
+    private void onFenced(DataLogRecord record)
+    {
+      ByteBuffer buffer = ByteBuffer.wrap(record.getRaw()).order(ByteOrder.LITTLE_ENDIAN);
+      final long timestamp = record.getTimestamp();
+
+      // Charge the time since the last input to whatever the fences were doing then
+      if (lastFencedTimestamp >= 0)
+      {
+        final double elapsed = (timestamp - lastFencedTimestamp) / 1e6;
+        // Gaps longer than a few loops are disabled time, not driving
+        if (elapsed < 5 * TimedRobot.kDefaultPeriod)
+        {
+          metrics.drivenSeconds += elapsed;
+          if (lastIntervened) {metrics.interventionSeconds += elapsed;}
+        }
+      }
+
+      // Every stage of one input shares its timestamp
+      lastIntervened =
+        brakeTimestamp == timestamp &&
+        Math.hypot(buffer.getDouble(0) - brakeX, buffer.getDouble(8) - brakeY) > interventionTolerance;
+      lastFencedTimestamp = timestamp;
+    }
+
+    private void onAutoStep(DataLogRecord record)
+    {
+      final String step = record.getString();
+      final long timestamp = record.getTimestamp();
+
+      if (currentStep != null)
+      {
+        metrics.autoSteps
+          .computeIfAbsent(currentStep, key -> new Distribution())
+          .add((timestamp - stepStartTimestamp) / 1e6);
+      }
+
+      currentStep = step.equals(AutoFactories.stepDoneMarker) ? null : step;
+      stepStartTimestamp = timestamp;
+    }
+  }
+}
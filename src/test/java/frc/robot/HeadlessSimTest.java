@@ -0,0 +1,77 @@
+package frc.robot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+
+/**
+ * Runs one auto through {@link HeadlessSim} in fresh JVMs, as the robot can only be created once per JVM, 
+ * checking each run finishes with the same result and reporting how long each took
+ */
+@Tag("sim")
+class HeadlessSimTest
+{
+  private static final String autoString = "re,cl1,rd,cl1,rc";
+  private static final int runs = 3;
+  /** Wall-clock time each run may take, seconds */
+  private static final long timeout = 120;
+
+  /** Output and wall-clock time of one run */
+  private static record Run(String result, double seconds) {}
+
+  private static Run runHeadless(String... args) throws IOException, InterruptedException
+  {
+    final String[] command = new String[5 + args.length];
+    command[0] = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+    command[1] = "-Djava.library.path=" + System.getProperty("java.library.path");
+    command[2] = "-cp";
+    command[3] = System.getProperty("java.class.path");
+    command[4] = Main.class.getName();
+    System.arraycopy(args, 0, command, 5, args.length);
+
+    // Output goes to a file rather than a pipe, so the run can't block on a full pipe and can be timed out
+    final File log = File.createTempFile("headless", ".log");
+    log.deleteOnExit();
+
+    final long start = System.nanoTime();
+    final Process process = new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(log).start();
+    final boolean exited = process.waitFor(timeout, TimeUnit.SECONDS);
+    final double seconds = (System.nanoTime() - start) / 1e9;
+    if (!exited) {process.destroyForcibly();}
+    final String output = Files.readString(log.toPath());
+    assertTrue(exited, "Timed out after " + timeout + " s\n" + output);
+    assertEquals(0, process.exitValue(), output);
+
+    // The result is the last line, after anything the robot printed
+    String result = null;
+    for (String line : output.split("\\R")) {if (line.startsWith("{")) {result = line;}}
+    assertNotNull(result, output);
+    return new Run(result, seconds);
+  }
+
+  @Test
+  void sameResultEveryRun(TestReporter reporter) throws IOException, InterruptedException
+  {
+    final Run first = runHeadless("--headless", autoString);
+    assertTrue(first.result().contains("\"finished\":true"), first.result());
+    reporter.publishEntry("result", first.result());
+    reporter.publishEntry("run 1", String.format("%.2f s wall-clock, including JVM start", first.seconds()));
+
+    for (int i = 1; i < runs; i++)
+    {
+      final Run run = runHeadless("--headless", autoString);
+      assertEquals(first.result(), run.result());
+      reporter.publishEntry("run " + (i + 1), String.format("%.2f s", run.seconds()));
+    }
+  }
+}
@@ -0,0 +1,94 @@
+package frc.robot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Runs the bundled scenarios through {@link ScenarioRunner} twice, checking they all reach their lineups with the same results.
+ * Also runs the scenarios requested by {@code ./gradlew runScenarios}
+ */
+@Tag("sim")
+class ScenarioRunnerTest
+{
+  private static final ObjectMapper mapper = new ObjectMapper();
+  /** Wall-clock time the runner may take, seconds */
+  private static final long timeout = 600;
+
+  /** Exit code and output of one runner */
+  private static record Run(int exitCode, String output) {}
+
+  /** Runs the runner in a new JVM, as it exits when done, with this one's classpath and native libraries */
+  private static Run runScenarioRunner(String... args) throws IOException, InterruptedException
+  {
+    final String[] command = new String[5 + args.length];
+    command[0] = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+    command[1] = "-Djava.library.path=" + System.getProperty("java.library.path");
+    command[2] = "-cp";
+    command[3] = System.getProperty("java.class.path");
+    command[4] = ScenarioRunner.class.getName();
+    System.arraycopy(args, 0, command, 5, args.length);
+
+    // Output goes to a file rather than a pipe, so the runner can't block on a full pipe and can be timed out
+    final File output = File.createTempFile("scenarios", ".log");
+    output.deleteOnExit();
+    final Process process = new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(output).start();
+    if (!process.waitFor(timeout, TimeUnit.SECONDS))
+    {
+      process.destroyForcibly();
+      return new Run(-1, "Timed out after " + timeout + " s\n" + Files.readString(output.toPath()));
+    }
+    return new Run(process.exitValue(), Files.readString(output.toPath()));
+  }
+
+  /** Runs the bundled scenarios and returns the summary without its machine dependent loop times */
+  private static JsonNode runBundledScenarios() throws IOException, InterruptedException
+  {
+    final File summary = File.createTempFile("scenarios", ".json");
+    summary.deleteOnExit();
+
+    final Run run = runScenarioRunner("scenarios", summary.getPath());
+    // Exits with 1 if any scenario didn't reach its lineup
+    assertEquals(0, run.exitCode(), run.output());
+
+    final JsonNode result = mapper.readTree(summary);
+    ((ObjectNode)result.get("totals")).remove("worstLoopTimeP99");
+    for (JsonNode scenario : result.get("scenarios"))
+      {((ObjectNode)scenario).remove(List.of("loopTimeP50", "loopTimeP99", "loopTimeMax", "loopTimeMean"));}
+    return result;
+  }
+
+  @Test
+  void sameResultsEveryRun() throws IOException, InterruptedException
+  {
+    final JsonNode first = runBundledScenarios();
+    assertEquals(first.get("totals").get("scenarios"), first.get("totals").get("reached"));
+    assertEquals(first, runBundledScenarios());
+  }
+
+  /** The scenarios and summary file given by runScenarios, as one space separated string; skipped in other test tasks */
+  @Test
+  void requestedScenarios() throws IOException, InterruptedException
+  {
+    final String args = System.getProperty("scenarios");
+    assumeTrue(args != null, "Only run by runScenarios");
+
+    final Run run = runScenarioRunner(args.trim().split("\\s+"));
+    // The runner's report is the point of the task, so it goes to the console whether or not every scenario passed
+    System.out.print(run.output());
+    assertEquals(0, run.exitCode(), "Not every scenario reached its lineup, or the runner failed");
+  }
+}
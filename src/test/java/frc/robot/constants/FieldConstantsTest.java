@@ -0,0 +1,49 @@
+package frc.robot.constants;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import edu.wpi.first.hal.AllianceStationID;
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.wpilibj.simulation.DriverStationSim;
+import frc.robot.util.AllianceService;
+
+class FieldConstantsTest
+{
+  private static final String[] stationLineupNames = {"cl1", "cl2", "cl3", "cr1", "cr2", "cr3"};
+
+  @BeforeAll
+  static void initHAL() {HAL.initialize(500, 0);}
+
+  @AfterEach
+  void resetAlliance() {setAlliance(false);}
+
+  private static void setAlliance(boolean red)
+  {
+    DriverStationSim.setAllianceStationId(red ? AllianceStationID.Red1 : AllianceStationID.Blue1);
+    DriverStationSim.notifyNewData();
+    AllianceService.update();
+  }
+
+  /** Auto station lineups must face the way teleop holds the robot at the same station */
+  @ParameterizedTest
+  @ValueSource(booleans = {false, true})
+  void stationLineupsHoldTheTeleopHeading(boolean red)
+  {
+    setAlliance(red);
+    final double[] headings = FieldConstants.allianceStationHeadings[AllianceService.index()];
+
+    for (String name : stationLineupNames)
+    {
+      final Pose2d lineup = FieldConstants.getAllianceLineup(name);
+      final double expected = lineup.getY() > FieldConstants.fieldCentre.getY() ? headings[1] : headings[0];
+      assertEquals(0, MathUtil.angleModulus(lineup.getRotation().getRadians() - expected), 1e-9, name);
+    }
+  }
+}
@@ -0,0 +1,159 @@
+package frc.robot.subsystems.vision;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+
+import edu.wpi.first.networktables.DoubleArrayPublisher;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import frc.robot.util.libs.LimelightHelpers;
+import frc.robot.util.libs.LimelightHelpers.PoseEstimate;
+
+/** Compares Limelight against the LimelightHelpers lookups it replaces, on a local NetworkTables instance */
+class LimelightTest
+{
+  private static final String name = "limelight-test";
+  private static final int warmupFrames = 20000;
+  private static final int timedFrames = 100000;
+
+  private static DoubleArrayPublisher mt2Pub;
+  private static Limelight limelight;
+  private static long timestamp = 1;
+
+  @BeforeAll
+  static void startNT()
+  {
+    NetworkTableInstance.getDefault().startLocal();
+    mt2Pub = NetworkTableInstance.getDefault().getTable(name).getDoubleArrayTopic("botpose_orb_wpiblue").publish();
+    limelight = new Limelight(name);
+  }
+
+  @AfterAll
+  static void stopNT()
+  {
+    mt2Pub.close();
+    NetworkTableInstance.getDefault().stopLocal();
+  }
+
+  /** Publishes a two tag MegaTag2 frame, one microsecond after the last */
+  private static void publishFrame(double x)
+  {
+    mt2Pub.set
+    (
+      new double[]
+      {
+        x, 4, 0, 0, 0, 30, 25, 2, 0.5, 2.1, 0.8,
+        18, 0.1, 0.2, 0.4, 2.0, 2.2, 0.05,
+        19, -0.1, 0.2, 0.4, 2.1, 2.3, 0.06
+      },
+      timestamp++
+    );
+  }
+
+  @Test
+  void pollMatchesHelpers()
+  {
+    publishFrame(3);
+
+    PoseEstimate helper = LimelightHelpers.getBotPoseEstimate_wpiBlue_MegaTag2(name);
+    PoseEstimate polled = limelight.pollMT2();
+
+    assertNotNull(polled);
+    assertEquals(helper.pose, polled.pose);
+    assertEquals(helper.timestampSeconds, polled.timestampSeconds, 1e-9);
+    assertEquals(helper.latency, polled.latency);
+    assertEquals(helper.tagCount, polled.tagCount);
+    assertEquals(helper.avgTagDist, polled.avgTagDist);
+    assertEquals(helper.rawFiducials.length, polled.rawFiducials.length);
+    for (int i = 0; i < helper.rawFiducials.length; i++)
+      {assertEquals(helper.rawFiducials[i].id, polled.rawFiducials[i].id);}
+
+    // Already handed out
+    assertNull(limelight.pollMT2());
+  }
+
+  @Test
+  void fiducialsMatchTheArray()
+  {
+    // Claims two tags but holds one
+    mt2Pub.set(new double[] {3, 4, 0, 0, 0, 30, 25, 2, 0.5, 2.1, 0.8, 18, 0.1, 0.2, 0.4, 2.0, 2.2, 0.05}, timestamp++);
+    final PoseEstimate polled = limelight.pollMT2();
+
+    assertNotNull(polled);
+    assertEquals(2, polled.tagCount);
+    assertEquals(1, polled.rawFiducials.length);
+    assertEquals(18, polled.rawFiducials[0].id);
+  }
+
+  @Test
+  void shortFramesCountAsRejected()
+  {
+    final String statsName = "limelight-stats";
+    final Limelight statsLimelight = new Limelight(statsName);
+    final NetworkTable stats = NetworkTableInstance.getDefault().getTable("Vision").getSubTable(statsName);
+
+    try (DoubleArrayPublisher pub = NetworkTableInstance.getDefault().getTable(statsName).getDoubleArrayTopic("botpose_orb_wpiblue").publish())
+    {
+      pub.set(new double[] {1, 2, 3}, timestamp++);
+      assertNull(statsLimelight.pollMT2());
+      // Nothing new since
+      assertNull(statsLimelight.pollMT2());
+    }
+
+    statsLimelight.publishStats();
+    assertEquals(1, stats.getEntry("Frames").getDouble(-1));
+    assertEquals(0, stats.getEntry("Accepted").getDouble(-1));
+    assertEquals(1, stats.getEntry("Rejected").getDouble(-1));
+    assertEquals(1, stats.getEntry("Duplicates").getDouble(-1));
+  }
+
+  /** Times one read of a fresh frame through each path, and reports the mean per call */
+  @Test
+  @Tag("benchmark")
+  void timePollAgainstHelpers(TestReporter reporter)
+  {
+    timeHelpers(warmupFrames);
+    timePoll(warmupFrames);
+
+    final double helperNs = timeHelpers(timedFrames);
+    final double pollNs = timePoll(timedFrames);
+
+    reporter.publishEntry("getBotPoseEstimate_wpiBlue_MegaTag2", String.format("%.0f ns/call", helperNs));
+    reporter.publishEntry("pollMT2", String.format("%.0f ns/call", pollNs));
+  }
+
+  private static double timeHelpers(int frames)
+  {
+    long total = 0;
+    for (int i = 0; i < frames; i++)
+    {
+      publishFrame(i % 16);
+      final long start = System.nanoTime();
+      assertNotNull(LimelightHelpers.getBotPoseEstimate_wpiBlue_MegaTag2(name));
+      total += System.nanoTime() - start;
+    }
+    // Keep the poll queue from carrying this run's frames into the next
+    limelight.pollMT2();
+    return (double)total / frames;
+  }
+
+  private static double timePoll(int frames)
+  {
+    long total = 0;
+    for (int i = 0; i < frames; i++)
+    {
+      publishFrame(i % 16);
+      final long start = System.nanoTime();
+      assertNotNull(limelight.pollMT2());
+      total += System.nanoTime() - start;
+    }
+    return (double)total / frames;
+  }
+}
@@ -0,0 +1,145 @@
+package frc.robot.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import frc.robot.constants.Constants;
+import frc.robot.constants.FieldConstants;
+
+class AutoOptimiserTest
+{
+  private static final Pose2d start = FieldConstants.blueStartLine;
+
+  /** Time to drive between lineups along the planned path, from rest to rest, as the optimiser costs it */
+  private static double driveTime(String from, String to)
+    {return driveTime(FieldConstants.getLineup(from), FieldConstants.getLineup(to));}
+
+  private static double driveTime(Pose2d from, Pose2d to)
+  {
+    return new PoseProfile()
+      .plan(from, 0, 0, 0, NavigationPlanner.get(AllianceService.blueIndex).findPath(from.getTranslation(), to.getTranslation()), to)
+      .getTotalTime();
+  }
+
+  /** Returns the time to run an auto string from the start, costed step by step */
+  private static double autoTime(String autoString)
+  {
+    final List<String> steps = AutoOptimiser.parseNames(autoString);
+    double time = driveTime(start, FieldConstants.getLineup(steps.get(0))) + Constants.Auto.scoreTime;
+    for (int i = 1; i < steps.size(); i++)
+    {
+      time += driveTime(steps.get(i - 1), steps.get(i));
+      time += steps.get(i).charAt(0) == 'c' ? Constants.Auto.intakeTime : Constants.Auto.scoreTime;
+    }
+    return time;
+  }
+
+  /** Best {scored, time} of every order of the remaining targets, by exhaustive search */
+  private static double[] bruteForce(String last, double time, int scored, List<String> remaining, List<String> stations)
+  {
+    double[] best = {scored, time};
+    for (String next : remaining)
+    {
+      double cycle = Double.POSITIVE_INFINITY;
+      for (String station : stations)
+      {
+        cycle = Math.min
+        (
+          cycle, 
+          driveTime(last, station) + Constants.Auto.intakeTime + driveTime(station, next) + Constants.Auto.scoreTime
+        );
+      }
+      if (time + cycle > Constants.Auto.duration) {continue;}
+
+      final double[] result = bruteForce(next, time + cycle, scored + 1, remaining.stream().filter(t -> !t.equals(next)).toList(), stations);
+      if (result[0] > best[0] || (result[0] == best[0] && result[1] < best[1])) {best = result;}
+    }
+    return best;
+  }
+
+  @Test
+  void matchesExhaustiveSearch()
+  {
+    final List<String> targets = List.of("ra", "rc", "re", "rg", "rk");
+    final List<String> stations = List.of("cl2", "cr2");
+
+    double[] best = {0, 0};
+    for (String first : targets)
+    {
+      final double time = driveTime(start, FieldConstants.getLineup(first)) + Constants.Auto.scoreTime;
+      final double[] result = bruteForce(first, time, 1, targets.stream().filter(t -> !t.equals(first)).toList(), stations);
+      if (result[0] > best[0] || (result[0] == best[0] && result[1] < best[1])) {best = result;}
+    }
+
+    final AutoOptimiser.Result result = AutoOptimiser.optimise(start, targets, stations);
+    assertTrue(result.complete());
+    assertEquals((int)best[0], result.scored());
+    assertEquals(best[1], result.time(), 1e-9);
+    assertEquals(result.time(), autoTime(result.autoString()), 1e-9);
+  }
+
+  @Test
+  void sameResultEveryRun()
+  {
+    // Mirror image targets and stations, so orders on either side tie
+    final List<String> targets = List.of("rc", "rd", "re", "rj", "rk", "rl");
+    final List<String> stations = List.of("cl1", "cr3");
+
+    final AutoOptimiser.Result first = AutoOptimiser.optimise(start, targets, stations);
+    for (int run = 0; run < 20; run++) {assertEquals(first, AutoOptimiser.optimise(start, targets, stations));}
+  }
+
+  @Test
+  void scoresOnlyThePreloadWithoutStations()
+  {
+    final AutoOptimiser.Result result = AutoOptimiser.optimise(start, List.of("ra", "rd", "rg"), List.of());
+    assertEquals(1, result.scored());
+    // The nearest target to the start
+    for (String target : List.of("ra", "rd", "rg")) 
+      {assertTrue(result.time() <= driveTime(start, FieldConstants.getLineup(target)) + Constants.Auto.scoreTime + 1e-9);}
+  }
+
+  @Test
+  void rejectsUnknownNames()
+  {
+    assertThrows(IllegalArgumentException.class, () -> AutoOptimiser.optimise(start, List.of("rz"), List.of("cl1")));
+    assertThrows(IllegalArgumentException.class, () -> AutoOptimiser.optimise(start, List.of("ra"), List.of("ra")));
+    assertThrows(IllegalArgumentException.class, () -> AutoOptimiser.optimise(start, List.of("cl1"), List.of("cl1")));
+  }
+
+  @Test
+  void parsesNames()
+    {assertEquals(List.of("ra", "rb", "cl1"), AutoOptimiser.parseNames(" ra, RB,,cL1 "));}
+
+  /** Reports the best auto over every reef lineup and station, and how long the search took */
+  @Test
+  @Tag("benchmark")
+  void benchmarkFullReef(TestReporter reporter)
+  {
+    final List<String> targets = List.of("ra", "rb", "rc", "rd", "re", "rf", "rg", "rh", "ri", "rj", "rk", "rl");
+    final List<String> stations = List.of("cl1", "cl2", "cl3", "cr1", "cr2", "cr3");
+
+    final long startTime = System.nanoTime();
+    final AutoOptimiser.Result result = AutoOptimiser.optimise(start, targets, stations);
+    final double elapsed = (System.nanoTime() - startTime) / 1e6;
+
+    assertEquals(result.time(), autoTime(result.autoString()), 1e-9);
+    reporter.publishEntry
+    (
+      "Full reef",
+      String.format
+      (
+        "%s, scored %d in %.2f s, %s, search took %.1f ms", 
+        result.autoString(), result.scored(), result.time(), result.complete() ? "complete" : "time limit reached", elapsed
+      )
+    );
+  }
+}
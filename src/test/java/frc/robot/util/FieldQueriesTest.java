@@ -0,0 +1,77 @@
+package frc.robot.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import edu.wpi.first.hal.AllianceStationID;
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Transform2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.wpilibj.simulation.DriverStationSim;
+import frc.robot.constants.FieldConstants;
+import frc.robot.constants.FieldConstants.GeoFencing;
+
+class FieldQueriesTest
+{
+  @BeforeAll
+  static void initHAL() {HAL.initialize(500, 0);}
+
+  @AfterEach
+  void resetAlliance() {setAlliance(false);}
+
+  private static void setAlliance(boolean red)
+  {
+    DriverStationSim.setAllianceStationId(red ? AllianceStationID.Red1 : AllianceStationID.Blue1);
+    DriverStationSim.notifyNewData();
+    AllianceService.update();
+  }
+
+  @ParameterizedTest
+  @ValueSource(booleans = {false, true})
+  void atEveryReefLineup(boolean red)
+  {
+    setAlliance(red);
+
+    for (Pose2d lineup : FieldConstants.allianceReefLineups[AllianceService.index()])
+    {
+      FieldQueries.update(lineup);
+      assertTrue(FieldQueries.atReefLineup(), "At " + lineup);
+
+      FieldQueries.update(lineup.plus(new Transform2d(0, 0.03, Rotation2d.kZero)));
+      assertTrue(FieldQueries.atReefLineup(), "Inside the tolerance of " + lineup);
+
+      FieldQueries.update(lineup.plus(new Transform2d(0, 0.1, Rotation2d.kZero)));
+      assertFalse(FieldQueries.atReefLineup(), "Outside the tolerance of " + lineup);
+    }
+  }
+
+  @ParameterizedTest
+  @ValueSource(booleans = {false, true})
+  void sectorIsNearestFace(boolean red)
+  {
+    setAlliance(red);
+    final var reef = red ? GeoFencing.reefRed : GeoFencing.reefBlue;
+    final List<Translation2d> faces = reef.getEdgeMidPoints();
+    final Random random = new Random(0);
+
+    for (int i = 0; i < 1000; i++)
+    {
+      final Translation2d position = reef.getCentre().plus
+        (new Translation2d(1 + 3 * random.nextDouble(), Rotation2d.fromRadians(2 * Math.PI * random.nextDouble())));
+      FieldQueries.update(new Pose2d(position, Rotation2d.kZero));
+
+      assertEquals(faces.indexOf(position.nearest(faces)), FieldQueries.getReefSector(), "At " + position);
+    }
+  }
+}
@@ -0,0 +1,55 @@
+package frc.robot.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Translation2d;
+import frc.robot.constants.FieldConstants;
+import frc.robot.constants.FieldConstants.GeoFencing;
+import frc.robot.util.controlTransmutation.geoFence.Polygon;
+
+class FieldUtilsTest
+{
+  private static final Polygon[] reefs = {GeoFencing.reefBlue, GeoFencing.reefRed};
+
+  @Test
+  void reefHasSixSectors()
+  {
+    for (int alliance : new int[] {AllianceService.blueIndex, AllianceService.redIndex})
+      {assertEquals(6, FieldConstants.allianceReefHeadings[alliance].length);}
+  }
+
+  @Test
+  void sectorOutFromEachFaceIsThatFace()
+  {
+    for (int alliance : new int[] {AllianceService.blueIndex, AllianceService.redIndex})
+    {
+      final Translation2d centre = reefs[alliance].getCentre();
+      for (int face = 0; face < 6; face++)
+      {
+        final Translation2d outward = reefs[alliance].getEdgeMidPoints().get(face).minus(centre);
+        for (double distance : new double[] {1.2, 2, 4})
+        {
+          final Translation2d position = centre.plus(outward.times(distance));
+          assertEquals(face, FieldUtils.getReefSector(alliance, position), "Alliance " + alliance + ", face " + face + ", x" + distance);
+        }
+      }
+    }
+  }
+
+  @Test
+  void reefHeadingsFaceTheReef()
+  {
+    for (int alliance : new int[] {AllianceService.blueIndex, AllianceService.redIndex})
+    {
+      final Translation2d centre = reefs[alliance].getCentre();
+      for (int face = 0; face < 6; face++)
+      {
+        final Translation2d inward = centre.minus(reefs[alliance].getEdgeMidPoints().get(face));
+        assertEquals(0, MathUtil.angleModulus(FieldConstants.allianceReefHeadings[alliance][face] - inward.getAngle().getRadians()), 1e-9);
+      }
+    }
+  }
+}
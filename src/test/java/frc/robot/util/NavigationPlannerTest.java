@@ -0,0 +1,136 @@
+package frc.robot.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import frc.robot.constants.FieldConstants;
+
+class NavigationPlannerTest
+{
+  /** Spacing of the points checked along a path, metres */
+  private static final double checkSpacing = 0.01;
+
+  private static double length(List<Translation2d> points)
+  {
+    double length = 0;
+    for (int i = 1; i < points.size(); i++) {length += points.get(i - 1).getDistance(points.get(i));}
+    return length;
+  }
+
+  /** Asserts the points from first to last, in straight lines, stay clear of every obstacle */
+  private static void assertClear(NavigationPlanner planner, List<Translation2d> points)
+  {
+    for (int i = 1; i < points.size(); i++)
+    {
+      final Translation2d a = points.get(i - 1);
+      final Translation2d b = points.get(i);
+      final int steps = (int)Math.ceil(a.getDistance(b) / checkSpacing);
+      for (int s = 0; s <= steps; s++)
+      {
+        final Translation2d point = a.interpolate(b, (double)s / steps);
+        assertEquals(0, planner.getPenetration(point), 1e-6, "Inside an obstacle at " + point);
+      }
+    }
+  }
+
+  private static List<Translation2d> withEnds(Translation2d start, List<Translation2d> waypoints, Translation2d goal)
+  {
+    final List<Translation2d> points = new ArrayList<Translation2d>();
+    points.add(start);
+    points.addAll(waypoints);
+    points.add(goal);
+    return points;
+  }
+
+  @Test
+  void clearLineHasNoWaypoints()
+  {
+    final NavigationPlanner planner = NavigationPlanner.get(AllianceService.blueIndex);
+    assertTrue(planner.findPath(new Translation2d(2, 2), new Translation2d(3, 1.5)).isEmpty());
+  }
+
+  @Test
+  void goesAroundTheReef()
+  {
+    final NavigationPlanner planner = NavigationPlanner.get(AllianceService.blueIndex);
+    final Translation2d reef = FieldConstants.allianceReefCentres[AllianceService.blueIndex];
+    final Translation2d start = new Translation2d(reef.getX() - 2.5, reef.getY());
+    final Translation2d goal = new Translation2d(reef.getX() + 2.5, reef.getY());
+
+    final List<Translation2d> waypoints = planner.findPath(start, goal);
+    assertFalse(waypoints.isEmpty());
+
+    final List<Translation2d> path = withEnds(start, waypoints, goal);
+    assertClear(planner, path);
+    // No longer than a clear detour out past the reef
+    final double detour = length(List.of(start, new Translation2d(reef.getX(), reef.getY() + 2), goal));
+    assertTrue(length(path) < detour, "Path of " + length(path) + " m, detour " + detour + " m");
+  }
+
+  /** Every coral station to every reef lineup, with the corners the path passes between kept clear */
+  @ParameterizedTest
+  @ValueSource(booleans = {false, true})
+  void reachesEveryReefLineupFromTheStations(boolean red)
+  {
+    final int index = red ? AllianceService.redIndex : AllianceService.blueIndex;
+    final NavigationPlanner planner = NavigationPlanner.get(index);
+    for (Pose2d blueStation : FieldConstants.stationLineups)
+    {
+      final Pose2d station = red ? blueStation.rotateAround(FieldConstants.fieldCentre, Rotation2d.k180deg) : blueStation;
+      for (Pose2d reef : FieldConstants.allianceReefLineups[index])
+      {
+        final List<Translation2d> waypoints = planner.findPath(station.getTranslation(), reef.getTranslation());
+        // The lineups themselves may be just inside an inflated fence, which the planner ignores for the ends
+        assertClear(planner, waypoints);
+        for (Translation2d waypoint : waypoints)
+          {assertEquals(0, planner.getPenetration(waypoint), 1e-6);}
+        assertTrue
+        (
+          length(withEnds(station.getTranslation(), waypoints, reef.getTranslation())) < 
+          station.getTranslation().getDistance(reef.getTranslation()) * 1.5
+        );
+      }
+    }
+  }
+
+  /** Reports the cost of a query from every coral station lineup to every reef lineup */
+  @Test
+  @Tag("benchmark")
+  void benchmarkStationToReef(TestReporter reporter)
+  {
+    final NavigationPlanner planner = NavigationPlanner.get(AllianceService.blueIndex);
+    final int repeats = 2000;
+    long start = 0;
+    int waypoints = 0;
+
+    for (int r = 0; r < 2 * repeats; r++)
+    {
+      if (r == repeats) {start = System.nanoTime();}
+      for (Pose2d station : FieldConstants.stationLineups)
+      {
+        for (Pose2d reef : FieldConstants.reefLineups)
+          {waypoints += planner.findPath(station.getTranslation(), reef.getTranslation()).size();}
+      }
+    }
+
+    final int queries = repeats * FieldConstants.stationLineups.length * FieldConstants.reefLineups.length;
+    reporter.publishEntry
+    (
+      "findPath", 
+      String.format("%.2f us/query, %.2f waypoints/query", (System.nanoTime() - start) / 1000.0 / queries, waypoints / 2.0 / queries)
+    );
+  }
+}
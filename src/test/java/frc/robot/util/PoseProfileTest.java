@@ -0,0 +1,151 @@
+package frc.robot.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import frc.robot.constants.FieldConstants;
+
+import static frc.robot.constants.Constants.Swerve.*;
+
+class PoseProfileTest
+{
+  private static final double period = 0.02;
+
+  /** Asserts the profile ends at rest on its target at its total time, with translation and rotation both still moving a step before */
+  private static void assertArrivesTogether(PoseProfile profile)
+  {
+    final double totalTime = profile.getTotalTime();
+
+    profile.sample(totalTime - period);
+    assertTrue(Math.hypot(profile.getVelocityX(), profile.getVelocityY()) > 1e-3, "Translation finished early");
+    assertTrue(Math.abs(profile.getAngularVelocity()) > 1e-3, "Rotation finished early");
+
+    profile.sample(totalTime);
+    assertEquals(profile.getTarget().getX(), profile.getX(), 1e-6);
+    assertEquals(profile.getTarget().getY(), profile.getY(), 1e-6);
+    assertEquals(0, MathUtil.angleModulus(profile.getTarget().getRotation().getRadians() - profile.getHeading()), 1e-6);
+    assertEquals(0, profile.getVelocityX(), 1e-6);
+    assertEquals(0, profile.getVelocityY(), 1e-6);
+    assertEquals(0, profile.getAngularVelocity(), 1e-6);
+  }
+
+  @Test
+  void fromRestArrivesTogether()
+  {
+    // Rotation stretched to the translation
+    assertArrivesTogether(new PoseProfile().plan(new Pose2d(2, 2, Rotation2d.kZero), 0, 0, 0, new Pose2d(6, 3, Rotation2d.fromDegrees(30))));
+    // Translation stretched to the rotation
+    assertArrivesTogether(new PoseProfile().plan(new Pose2d(2, 2, Rotation2d.kZero), 0, 0, 0, new Pose2d(2.3, 2, Rotation2d.fromDegrees(180))));
+  }
+
+  @Test
+  void movingStartArrivesTogether()
+  {
+    // Already moving towards the target
+    assertArrivesTogether(new PoseProfile().plan(new Pose2d(2, 2, Rotation2d.kZero), 2, 0, 0, new Pose2d(4, 2, Rotation2d.fromDegrees(170))));
+    // Moving away from the target, and turning the wrong way
+    assertArrivesTogether(new PoseProfile().plan(new Pose2d(2, 2, Rotation2d.kZero), -1, 1, -2, new Pose2d(5, 4, Rotation2d.fromDegrees(20))));
+    // Turning quickly away from the target heading on a long drive
+    assertArrivesTogether(new PoseProfile().plan(new Pose2d(2, 2, Rotation2d.kZero), 0, 0, -3, new Pose2d(7, 6, Rotation2d.fromDegrees(10))));
+    // Driving fast on a short drive with a long turn
+    assertArrivesTogether(new PoseProfile().plan(new Pose2d(2, 2, Rotation2d.kZero), profiledMaxSpeed * 0.9, 0, 0, new Pose2d(5, 2, Rotation2d.fromDegrees(179))));
+  }
+
+  @Test
+  void startVelocityIsKept()
+  {
+    final double vx = profiledMaxSpeed * 0.9;
+    // Short drive, long turn, so translation is slowed
+    final PoseProfile profile = new PoseProfile().plan(new Pose2d(2, 2, Rotation2d.kZero), vx, 0, 0, new Pose2d(4, 2, Rotation2d.fromDegrees(179)));
+
+    profile.sample(0);
+    assertEquals(vx, profile.getVelocityX(), 1e-6);
+    assertEquals(0, profile.getVelocityY(), 1e-6);
+    assertArrivesTogether(profile);
+  }
+
+  @Test
+  void followsWaypoints()
+  {
+    final List<Translation2d> waypoints = List.of(new Translation2d(4, 2), new Translation2d(4, 5));
+    final PoseProfile profile = new PoseProfile().plan(new Pose2d(2, 2, Rotation2d.kZero), 0, 0, 0, waypoints, new Pose2d(6, 5, Rotation2d.kCW_90deg));
+
+    for (double t = 0; t < profile.getTotalTime(); t += period)
+    {
+      profile.sample(t);
+      final boolean onPath = 
+        (Math.abs(profile.getY() - 2) < 1e-9 && profile.getX() <= 4 + 1e-9) ||
+        (Math.abs(profile.getX() - 4) < 1e-9) ||
+        (Math.abs(profile.getY() - 5) < 1e-9 && profile.getX() >= 4 - 1e-9);
+      assertTrue(onPath, "Off the path at " + t + " s");
+    }
+    assertArrivesTogether(profile);
+  }
+
+  /** Reports the profiled time from each coral station lineup to each reef lineup, from rest to rest, and the cost of planning and sampling */
+  @Test
+  @Tag("benchmark")
+  void benchmarkReefLineups(TestReporter reporter)
+  {
+    final PoseProfile profile = new PoseProfile();
+    double timeSum = 0;
+    double worstTime = 0;
+    int drives = 0;
+
+    for (Pose2d station : FieldConstants.stationLineups)
+    {
+      for (Pose2d reef : FieldConstants.reefLineups)
+      {
+        final double time = profile.plan(station, 0, 0, 0, reef).getTotalTime();
+        timeSum += time;
+        worstTime = Math.max(worstTime, time);
+        drives++;
+      }
+    }
+
+    // Warm up, then time planning and sampling over every lineup pair
+    final int repeats = 2000;
+    long planNs = 0;
+    long sampleNs = 0;
+    long samples = 0;
+    for (int r = 0; r < 2 * repeats; r++)
+    {
+      final boolean timed = r >= repeats;
+      for (Pose2d station : FieldConstants.stationLineups)
+      {
+        for (Pose2d reef : FieldConstants.reefLineups)
+        {
+          long start = System.nanoTime();
+          profile.plan(station, 0.5, -0.3, 1, reef);
+          if (timed) {planNs += System.nanoTime() - start;}
+
+          start = System.nanoTime();
+          for (double t = 0; t < profile.getTotalTime(); t += period) 
+          {
+            profile.sample(t);
+            if (timed) {samples++;}
+          }
+          if (timed) {sampleNs += System.nanoTime() - start;}
+        }
+      }
+    }
+
+    reporter.publishEntry
+    (
+      "Station to reef", 
+      String.format("%d drives: mean %.2f s, worst %.2f s", drives, timeSum / drives, worstTime)
+    );
+    reporter.publishEntry("plan", String.format("%.2f us/call", planNs / 1000.0 / (repeats * drives)));
+    reporter.publishEntry("sample", String.format("%.0f ns/call", (double)sampleNs / samples));
+  }
+}
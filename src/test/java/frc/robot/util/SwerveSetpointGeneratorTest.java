@@ -0,0 +1,185 @@
+package frc.robot.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+
+import static frc.robot.constants.Constants.Swerve.*;
+
+class SwerveSetpointGeneratorTest
+{
+  private static final double period = 0.02;
+  private static final Translation2d[] modules = 
+  {
+    new Translation2d(0.3, 0.3), 
+    new Translation2d(0.3, -0.3), 
+    new Translation2d(-0.3, 0.3), 
+    new Translation2d(-0.3, -0.3)
+  };
+
+  private static double moduleVX(SwerveSetpointGenerator generator, Translation2d module)
+    {return generator.getVX() - generator.getOmega() * module.getY();}
+
+  private static double moduleVY(SwerveSetpointGenerator generator, Translation2d module)
+    {return generator.getVY() + generator.getOmega() * module.getX();}
+
+  /** Steps towards the request for the given time, asserting every module's velocity change fits the wheel-force budget */
+  private static void driveFor(SwerveSetpointGenerator generator, double vx, double vy, double omega, double time)
+  {
+    final double[] lastX = new double[modules.length];
+    final double[] lastY = new double[modules.length];
+
+    for (double t = 0; t < time; t += period)
+    {
+      for (int i = 0; i < modules.length; i++)
+      {
+        lastX[i] = moduleVX(generator, modules[i]);
+        lastY[i] = moduleVY(generator, modules[i]);
+      }
+
+      generator.calculate(vx, vy, omega, period);
+
+      for (int i = 0; i < modules.length; i++)
+      {
+        final double change = Math.hypot(moduleVX(generator, modules[i]) - lastX[i], moduleVY(generator, modules[i]) - lastY[i]);
+        assertTrue(change <= moduleMaxAcceleration * period + 1e-9, "Module " + i + " changed by " + change);
+      }
+    }
+  }
+
+  @Test
+  void reachesTheRequest()
+  {
+    final SwerveSetpointGenerator generator = new SwerveSetpointGenerator(modules);
+    driveFor(generator, 2, -1, 1.5, 3);
+
+    assertEquals(2, generator.getVX(), 1e-9);
+    assertEquals(-1, generator.getVY(), 1e-9);
+    assertEquals(1.5, generator.getOmega(), 1e-9);
+  }
+
+  @Test
+  void desaturatesTheRequest()
+  {
+    final SwerveSetpointGenerator generator = new SwerveSetpointGenerator(modules);
+    driveFor(generator, 10, 0, 10, 5);
+
+    for (Translation2d module : modules)
+      {assertTrue(Math.hypot(moduleVX(generator, module), moduleVY(generator, module)) <= maxSpeed + 1e-9);}
+    // Direction of the request is kept
+    assertEquals(1, generator.getOmega() / generator.getVX(), 1e-9);
+  }
+
+  @Test
+  void slowerThanFreeAccelerationNearFreeSpeed()
+  {
+    final SwerveSetpointGenerator generator = new SwerveSetpointGenerator(modules);
+    generator.reset(new ChassisSpeeds(maxSpeed * 0.9, 0, 0), restingModules(0));
+
+    generator.calculate(maxSpeed, 0, 0, period);
+    final double gain = generator.getVX() - maxSpeed * 0.9;
+    assertTrue(gain > 0);
+    assertTrue(gain <= moduleStallAcceleration * 0.1 * period + 1e-9, "Gained " + gain);
+  }
+
+  @Test
+  void steersAtTheSteeringRate()
+  {
+    final SwerveSetpointGenerator generator = new SwerveSetpointGenerator(modules);
+    generator.reset(new ChassisSpeeds(3, 0, 0), restingModules(0));
+
+    // A right angle turn at speed, so each module has to steer 90 degrees
+    double lastDirection = 0;
+    for (int step = 0; step < 100; step++)
+    {
+      generator.calculate(0, 3, 0, period);
+      final double direction = Math.atan2(generator.getVY(), generator.getVX());
+      if (Math.hypot(generator.getVX(), generator.getVY()) > 0.05)
+      {
+        final double steer = MathUtil.angleModulus(2 * (direction - lastDirection)) / 2;
+        assertTrue(Math.abs(steer) <= moduleMaxSteerRate * period + 1e-6, "Steered " + steer + " rad at step " + step);
+        lastDirection = direction;
+      }
+    }
+
+    assertEquals(0, generator.getVX(), 1e-9);
+    assertEquals(3, generator.getVY(), 1e-9);
+  }
+
+  /** Reports how long the setpoint takes to make 90% of the change to a request, by the slowest module, and the cost of each calculation */
+  @Test
+  @Tag("benchmark")
+  void benchmarkTimeToSpeed(TestReporter reporter)
+  {
+    final double[][] requests = 
+    {
+      {maxSpeed, 0, 0},
+      {0, maxSpeed, 0},
+      {2, 2, 3},
+      {-maxSpeed, 0, 0}
+    };
+    final String[] names = {"Rest to full forward", "Rest to full left", "Rest to drive and turn", "Full forward to full reverse"};
+
+    for (int r = 0; r < requests.length; r++)
+    {
+      final SwerveSetpointGenerator generator = new SwerveSetpointGenerator(modules);
+      if (r == 3) {generator.reset(new ChassisSpeeds(maxSpeed, 0, 0), restingModules(0));}
+
+      final double[] request = requests[r];
+      final double startError = error(generator, request);
+      double time = 0;
+      while (error(generator, request) > 0.1 * startError)
+      {
+        generator.calculate(request[0], request[1], request[2], period);
+        time += period;
+      }
+      reporter.publishEntry(names[r], String.format("%.2f s to 90%% of the change", time));
+    }
+
+    final SwerveSetpointGenerator generator = new SwerveSetpointGenerator(modules);
+    final int calls = 1000000;
+    long start = 0;
+    for (int i = 0; i < 2 * calls; i++)
+    {
+      if (i == calls) {start = System.nanoTime();}
+      // Alternating between opposite requests, so every call has a step to limit
+      final double sign = (i / 50) % 2 == 0 ? 1 : -1;
+      generator.calculate(sign * maxSpeed, 1, sign * 2, period);
+    }
+    reporter.publishEntry("calculate", String.format("%.0f ns/call", (double)(System.nanoTime() - start) / calls));
+  }
+
+  private static double error(SwerveSetpointGenerator generator, double[] request)
+  {
+    double error = 0;
+    for (Translation2d module : modules)
+    {
+      error = Math.max
+      (
+        error, 
+        Math.hypot
+        (
+          moduleVX(generator, module) - (request[0] - request[2] * module.getY()), 
+          moduleVY(generator, module) - (request[1] + request[2] * module.getX())
+        )
+      );
+    }
+    return error;
+  }
+
+  private static SwerveModuleState[] restingModules(double angle)
+  {
+    final SwerveModuleState[] states = new SwerveModuleState[modules.length];
+    for (int i = 0; i < states.length; i++) {states[i] = new SwerveModuleState(0, new Rotation2d(angle));}
+    return states;
+  }
+}